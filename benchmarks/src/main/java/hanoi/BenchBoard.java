@@ -0,0 +1,50 @@
+package hanoi;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BenchBoard builds a game board the way the game screen does, without a
+ * window: disks and towers are laid out by {@link BoardLayout} on a
+ * 1920x1080 screen and placed where the engine holds them. The board is
+ * taken halfway through the optimal solution, so every peg has disks.
+ */
+final class BenchBoard {
+	static final Dimension SCREEN = new Dimension(1920, 1080);
+	final HanoiEngine engine;
+	final BoardLayout layout;
+	final Tower[] towers;
+	final List<Disk> disks = new ArrayList<>(); // From the largest to the smallest, as in MyGraphics.
+	final BoardCanvas canvas;
+	final SpriteCache spriteCache = new SpriteCache();
+	final DiskRenderer diskRenderer;
+
+	BenchBoard(int totalDisk, int pegCount) {
+		engine = new HanoiEngine(pegCount);
+		engine.reset(totalDisk, 0);
+		if (pegCount == 3) {
+			long[] pegs = new long[3];
+			HanoiSolver solver = new HanoiSolver(totalDisk, 0, 2);
+			solver.stateAfter(solver.totalMoves() / 2, pegs);
+			engine.setPegs(pegs);
+		}
+		layout = new BoardLayout(SCREEN, pegCount, totalDisk);
+
+		towers = new Tower[pegCount];
+		for (int i = 0; i < pegCount; i++) {
+			towers[i] = new Tower(Tower.WOOD, BoardLayout.TOWER_DIAMETER, layout.towerHeight(), layout.towerX(i), layout.towerY(), i, null);
+		}
+		diskRenderer = new DiskRenderer(layout, spriteCache);
+		for (int rank = totalDisk - 1; rank >= 0; rank--) {
+			Disk disk = new Disk(rank, diskRenderer, null);
+			int x = layout.diskX(rank, engine.pegOf(rank)), y = layout.diskY(rank, engine.levelOf(rank));
+			disk.setBounds(x, y, diskRenderer.width(rank) + 2, diskRenderer.height(rank));
+			disks.add(disk);
+		}
+
+		canvas = new BoardCanvas(spriteCache);
+		canvas.setBounds(0, 0, SCREEN.width, SCREEN.height);
+		canvas.setBoard(towers, disks, diskRenderer);
+	}
+}
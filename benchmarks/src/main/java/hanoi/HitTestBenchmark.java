@@ -0,0 +1,75 @@
+package hanoi;
+
+import java.awt.Color;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the hit tests run on every mouse event: the ellipse test of
+ * {@link Disk#contains}, the corner test of {@link RoundedBtn#contains} and
+ * the topmost-disk search of {@link BoardCanvas#diskAt}. Each operation
+ * tests {@link #POINTS} random points spread over the bounds of the shape,
+ * with a margin around it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "--enable-preview"})
+@OperationsPerInvocation(HitTestBenchmark.POINTS)
+public class HitTestBenchmark {
+	static final int POINTS = 1024;
+	private BenchBoard board;
+	private Disk disk;
+	private RoundedBtn button;
+	private final int[] diskX = new int[POINTS], diskY = new int[POINTS];
+	private final int[] buttonX = new int[POINTS], buttonY = new int[POINTS];
+	private final int[] boardX = new int[POINTS], boardY = new int[POINTS];
+
+	@Setup
+	public void setUp() {
+		board = new BenchBoard(7, 3);
+		disk = board.disks.get(0);
+		button = new RoundedBtn("Auto-solve", 120, 32, 15, Color.GREEN, Color.DARK_GRAY);
+		button.setSize(120, 32);
+
+		SplittableRandom random = new SplittableRandom(42);
+		int w = disk.getPreferredSize().width, h = disk.getPreferredSize().height;
+		for (int i = 0; i < POINTS; i++) {
+			diskX[i] = random.nextInt(-10, w + 10);
+			diskY[i] = random.nextInt(-10, h + 10);
+			buttonX[i] = random.nextInt(-10, 130);
+			buttonY[i] = random.nextInt(-10, 42);
+			boardX[i] = random.nextInt(BenchBoard.SCREEN.width);
+			boardY[i] = random.nextInt(board.layout.towerY(), board.layout.towerY() + board.layout.towerHeight() + 60);
+		}
+	}
+
+	@Benchmark
+	public void diskContains(Blackhole bh) {
+		for (int i = 0; i < POINTS; i++) bh.consume(disk.contains(diskX[i], diskY[i]));
+	}
+
+	@Benchmark
+	public void roundedBtnContains(Blackhole bh) {
+		for (int i = 0; i < POINTS; i++) bh.consume(button.contains(buttonX[i], buttonY[i]));
+	}
+
+	@Benchmark
+	public void boardDiskAt(Blackhole bh) {
+		for (int i = 0; i < POINTS; i++) bh.consume(board.canvas.diskAt(boardX[i], boardY[i]));
+	}
+}
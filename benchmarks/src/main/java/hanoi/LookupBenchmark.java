@@ -0,0 +1,82 @@
+package hanoi;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the board lookups the game runs on every drag and drop, through
+ * the {@link BoardLookups} helpers that MyGraphics and Tower delegate to.
+ * Each operation visits every disk or every tower once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "--enable-preview"})
+public class LookupBenchmark {
+	@Param({"7", "20"})
+	int totalDisk;
+
+	private HanoiEngine engine;
+	private List<Disk> disks;
+	private int[] diameters;
+	private int from, to; // A legal move: the smallest disk to the next peg.
+
+	@Setup
+	public void setUp() {
+		BenchBoard board = new BenchBoard(totalDisk, 3);
+		engine = board.engine;
+		disks = board.disks;
+		diameters = new int[totalDisk];
+		for (int i = 0; i < totalDisk; i++) diameters[i] = disks.get(i).diskDiameter();
+		from = engine.pegOf(0);
+		to = (from + 1) % engine.pegCount();
+	}
+
+	@Benchmark
+	public void indexOfInferiorDiskOf(Blackhole bh) {
+		for (Disk disk : disks) bh.consume(BoardLookups.indexOfInferiorDiskOf(engine, disks, disk));
+	}
+
+	@Benchmark
+	public void inferiorDiskOf(Blackhole bh) {
+		for (Disk disk : disks) bh.consume(BoardLookups.inferiorDiskOf(engine, disks, disk));
+	}
+
+	@Benchmark
+	public void diskByDiameter(Blackhole bh) {
+		for (int diameter : diameters) bh.consume(BoardLookups.diskByDiameter(disks, diameter));
+	}
+
+	@Benchmark
+	public void isCompleteTower(Blackhole bh) {
+		for (int peg = 0; peg < engine.pegCount(); peg++) bh.consume(BoardLookups.isCompleteTower(engine, peg, totalDisk));
+	}
+
+	@Benchmark
+	public void topDiskAndPegOf(Blackhole bh) {
+		for (int peg = 0; peg < engine.pegCount(); peg++) bh.consume(engine.topDisk(peg));
+		for (int rank = 0; rank < totalDisk; rank++) bh.consume(engine.pegOf(rank));
+	}
+
+	/**
+	 * A legal move and its reverse, as played by a drop and an undo.
+	 */
+	@Benchmark
+	public boolean moveAndBack() {
+		return engine.canMove(from, to) && engine.move(from, to) && engine.move(to, from);
+	}
+}
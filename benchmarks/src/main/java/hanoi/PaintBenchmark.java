@@ -0,0 +1,100 @@
+package hanoi;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures painting into an offscreen {@link BufferedImage} under headless
+ * AWT: a disk and a tower blitted from their cached sprites, a disk sprite
+ * rendered on a cache miss, a whole board through
+ * {@link BoardCanvas#paintComponent}, and a {@link RoundedBtn}. Boards of
+ * 64 disks are thin, so their disks are batched flat bars.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "--enable-preview"})
+public class PaintBenchmark {
+	@Param({"7", "25", "64"})
+	int totalDisk;
+
+	private BenchBoard board;
+	private BufferedImage image;
+	private Graphics2D g;
+	private Disk disk;
+	private Tower tower;
+	private RoundedBtn button;
+	private DiskRenderer freshRenderer; // A renderer without sprites, over an empty cache.
+
+	@Setup
+	public void setUp() {
+		board = new BenchBoard(totalDisk, 3);
+		image = new BufferedImage(BenchBoard.SCREEN.width, BenchBoard.SCREEN.height, BufferedImage.TYPE_INT_RGB);
+		g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		disk = board.disks.get(0);
+		tower = board.towers[0];
+		disk.paint(g);
+		tower.paint(g, board.spriteCache);
+		button = new RoundedBtn("Auto-solve", 120, 32, 15, Color.GREEN, Color.DARK_GRAY);
+		button.setSize(120, 32);
+	}
+
+	@Setup(Level.Invocation)
+	public void emptyCache() {
+		freshRenderer = new DiskRenderer(board.layout, new SpriteCache());
+	}
+
+	@TearDown
+	public void tearDown() {
+		g.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage diskSprite() {
+		disk.paint(g);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage diskRender() {
+		freshRenderer.paint(g, disk.rank(), disk.getX(), disk.getY());
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage towerSprite() {
+		tower.paint(g, board.spriteCache);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage boardPaintComponent() {
+		board.canvas.paintComponent(g);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage roundedBtnPaintComponent() {
+		button.paintComponent(g);
+		return image;
+	}
+}
@@ -0,0 +1,117 @@
+package hanoi;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the solvers and the structures the auto-solve, timeline and
+ * replay features run on: streaming and random access into the optimal
+ * three-peg solution, the optimal distance of a random board, dealing a
+ * rated random start, a Frame-Stewart solution, timeline jumps in
+ * {@link MoveHistory} and the varint codec of the replay files.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "--enable-preview"})
+public class SolverBenchmark {
+	private static final int DISKS = 20;
+	private static final int SAMPLES = 1024; // Random inputs cycled through by the benchmarks.
+	private final HanoiSolver stream = new HanoiSolver(DISKS, 0, 2);
+	private final HanoiSolver solver = new HanoiSolver(DISKS, 0, 2);
+	private final long[] pegs = new long[3];
+	private final long[] steps = new long[SAMPLES];
+	private final HanoiEngine[] boards = new HanoiEngine[SAMPLES];
+	private final SplittableRandom startRandom = new SplittableRandom(7);
+	private final HanoiEngine historyBoard = new HanoiEngine(3);
+	private final MoveHistory history = new MoveHistory(3, 1 << 16);
+	private final long[] values = new long[SAMPLES];
+	private final ByteBuffer buffer = ByteBuffer.allocate(SAMPLES * Varint.MAX_BYTES);
+	private int next;
+
+	@Setup
+	public void setUp() {
+		SplittableRandom random = new SplittableRandom(42);
+		for (int i = 0; i < SAMPLES; i++) {
+			steps[i] = random.nextLong(solver.totalMoves() + 1);
+			long[] board = new long[3];
+			for (int d = 0; d < DISKS; d++) board[random.nextInt(3)] |= 1L << d;
+			boards[i] = new HanoiEngine(3);
+			boards[i].reset(DISKS, 0);
+			boards[i].setPegs(board);
+			values[i] = random.nextLong() >>> random.nextInt(64);
+		}
+
+		historyBoard.reset(16, 0);
+		history.reset(historyBoard);
+		HanoiSolver moves = new HanoiSolver(16, 0, 2);
+		while (moves.hasNext()) {
+			int move = moves.next();
+			historyBoard.move(Moves.from(move), Moves.to(move));
+			history.record(Moves.disk(move), Moves.from(move), Moves.to(move), historyBoard);
+		}
+	}
+
+	@Benchmark
+	public int streamNext() {
+		if (!stream.hasNext()) stream.reset();
+		return stream.next();
+	}
+
+	@Benchmark
+	public int moveAt() {
+		return solver.move(steps[next++ & (SAMPLES - 1)]);
+	}
+
+	@Benchmark
+	public long[] stateAfter() {
+		solver.stateAfter(steps[next++ & (SAMPLES - 1)], pegs);
+		return pegs;
+	}
+
+	@Benchmark
+	public long distance() {
+		return HanoiSolver.distance(boards[next++ & (SAMPLES - 1)], 2);
+	}
+
+	@Benchmark
+	public long randomStart() {
+		return StartPool.deal(DISKS, StartPool.BANDS - 1, startRandom).distance();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int[] frameStewart() {
+		return new FrameStewartSolver(16, 4).solve();
+	}
+
+	@Benchmark
+	public long timelineSeek() {
+		history.seek(steps[next++ & (SAMPLES - 1)] % (history.end() + 1), historyBoard);
+		return history.position();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void varintRoundTrip(Blackhole bh) {
+		buffer.clear();
+		for (long value : values) Varint.write(buffer, value);
+		buffer.flip();
+		for (int i = 0; i < SAMPLES; i++) bh.consume(Varint.read(buffer));
+	}
+}
@@ -0,0 +1,48 @@
+/**
+ * AdjacentRules only let a disk move to a neighbouring peg, so every move
+ * between the outer pegs goes through the middle one. Moving a tower
+ * between the outer pegs then takes 3^n-1 moves and passes through every
+ * legal board; moving it to or from the middle peg takes half as many.
+ */
+final class AdjacentRules implements RuleVariant {
+	private static final int[][] PLAN = new int[9][];
+
+	static {
+		for (int from = 0; from < 3; from++) {
+			for (int to = 0; to < 3; to++) {
+				if (Math.abs(from - to) == 1) {
+					int other = 3 - from - to;
+					PLAN[from * 3 + to] = new int[]{PlanSolver.tower(from, other), PlanSolver.disk(from, to), PlanSolver.tower(other, to)};
+				} else if (from != to) {
+					PLAN[from * 3 + to] = new int[]{PlanSolver.tower(from, to), PlanSolver.disk(from, 1), PlanSolver.tower(to, from),
+							PlanSolver.disk(1, to), PlanSolver.tower(from, to)};
+				}
+			}
+		}
+	}
+
+	@Override
+	public String name() {
+		return "Adjacent";
+	}
+
+	@Override
+	public String description() {
+		return "Disks only move to a neighbouring peg";
+	}
+
+	@Override
+	public boolean supports(int pegCount) {
+		return pegCount == 3;
+	}
+
+	@Override
+	public boolean canMove(HanoiEngine board, int from, int to) {
+		return (from - to == 1 || to - from == 1) && board.canMove(from, to);
+	}
+
+	@Override
+	public RuleVariant.Solver solver(int totalDisk, int from, int to) {
+		return new PlanSolver(PLAN, totalDisk, from, to);
+	}
+}
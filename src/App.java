@@ -6,6 +6,9 @@ public class App {
      * @throws Exception if an error occurs during the creation of the GUI
      */
     public static void main(String[] args) throws Exception {
+		StartupTrace.begin();
+		// Decode the assets while the window is being built.
+		Preloader.assets();
         // Schedule a job for the event-dispatching thread:
         // creating and showing this application's GUI.
 		java.awt.EventQueue.invokeLater(() -> {
@@ -0,0 +1,26 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * AppFiles locates the files the game keeps between runs. They live in
+ * {@code ~/.hanoi-towers} unless the {@code hanoi.dataDir} system property
+ * points elsewhere.
+ */
+public final class AppFiles {
+	private AppFiles() {
+	}
+
+	/**
+	 * Returns a file of the data directory, creating the directory if needed.
+	 *
+	 * @param name the file name.
+	 * @return the path of the file.
+	 * @throws IOException if the directory cannot be created.
+	 */
+	public static Path file(String name) throws IOException {
+		Path dir = Path.of(System.getProperty("hanoi.dataDir", System.getProperty("user.home") + "/.hanoi-towers"));
+		Files.createDirectories(dir);
+		return dir.resolve(name);
+	}
+}
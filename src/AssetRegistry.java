@@ -0,0 +1,62 @@
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.swing.ImageIcon;
+
+/**
+ * AssetRegistry shares the fonts and icons of the user interface. Each one
+ * is created on first use and handed out again afterwards, so building a
+ * screen never decodes an image or derives a font twice. Fonts and icons
+ * are immutable, so one instance can be used by any number of components.
+ */
+public final class AssetRegistry {
+	static final String FONT_FAMILY = "Arial"; // Family of every font of the user interface.
+	static final String CLOSE_ICON = "close_24px.png", BACK_ICON = "arrow_back_24px.png";
+	private static final Map<Integer, Font> FONTS = new ConcurrentHashMap<>(); // Keyed by size and style.
+	private static final Map<String, ImageIcon> ICONS = new ConcurrentHashMap<>(); // Keyed by file name.
+
+	private AssetRegistry() {
+	}
+
+	/**
+	 * Returns the font of the user interface with the given style and size.
+	 *
+	 * @param style the style, such as {@link Font#BOLD}.
+	 * @param size the point size.
+	 * @return the shared font.
+	 */
+	public static Font font(int style, int size) {
+		return FONTS.computeIfAbsent(size << 2 | style, _ -> new Font(FONT_FAMILY, style, size));
+	}
+
+	/**
+	 * Decodes every icon and loads the font files of the user interface, so
+	 * that the first layout does not wait for them. Safe to call from any
+	 * thread, concurrently with the lookups of the event dispatch thread.
+	 */
+	public static void preload() {
+		icon(CLOSE_ICON);
+		icon(BACK_ICON);
+		Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+		for (int style : new int[]{Font.PLAIN, Font.BOLD}) g.getFontMetrics(font(style, 24)).stringWidth("Hanoi Towers 0123456789");
+		g.dispose();
+	}
+
+	/**
+	 * Returns an icon of the assets directory. Icons are looked up on the
+	 * classpath, where the build packages them, then in the assets directory
+	 * of the working directory, when run from the project.
+	 *
+	 * @param name the file name of the icon.
+	 * @return the shared icon.
+	 */
+	public static ImageIcon icon(String name) {
+		return ICONS.computeIfAbsent(name, _ -> {
+			URL url = AssetRegistry.class.getResource("/assets/" + name);
+			return url != null ? new ImageIcon(url) : new ImageIcon("assets/" + name);
+		});
+	}
+}
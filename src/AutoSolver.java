@@ -0,0 +1,240 @@
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AutoSolver plays the optimal solution from the current board on a producer
+ * thread, at a rate that can be changed while it runs, from one move per
+ * second to millions. The producer applies the moves to its own copy of the
+ * board and publishes it through a sequence lock after every batch; the
+ * renderer reads only the latest published board once per display frame,
+ * so intermediate states are dropped instead of queued on the EDT.
+ * <p>
+ * With three pegs any position can be solved: the largest disk not on the
+ * goal peg is moved there after gathering the smaller disks on the spare
+ * peg, and the smaller disks then follow as a whole tower, streamed by
+ * {@link HanoiSolver}. With more pegs only a complete tower is solved, with
+ * the {@link FrameStewartSolver} moves. Under the other rule variants, too,
+ * only a complete tower is solved, with the solver of the variant.
+ */
+public class AutoSolver {
+	static final double MIN_RATE = 1, MAX_RATE = 10_000_000; // Moves per second.
+	private static final long PUBLISH_NANOS = 1_000_000; // Longest run of moves between two publications.
+	private final HanoiEngine board; // Producer copy of the board.
+	private final int goal;
+	private final long[] shared; // Board published to the renderer, guarded by sequence.
+	private RuleVariant rules = RuleVariant.CLASSIC; // Rules of the board being solved.
+	private volatile long sequence; // Odd while the producer writes the shared board.
+	private long sharedMoves; // Moves played in the published board, guarded by sequence.
+	private volatile double rate; // Target moves per second.
+	private volatile boolean running;
+	private volatile boolean finished; // Set once the last move is published.
+	private Thread producer;
+	private long moves; // Moves played by the producer.
+	private long budget; // Moves the producer may play before checking the clock again.
+	private long epochNanos, epochMoves; // Clock and move count when the rate last changed.
+	private double epochRate;
+
+	/**
+	 * Constructs a solver for boards of the given size.
+	 *
+	 * @param pegCount the number of pegs.
+	 * @param goal the peg the tower must end on.
+	 */
+	public AutoSolver(int pegCount, int goal) {
+		this.board = new HanoiEngine(pegCount);
+		this.goal = goal;
+		this.shared = new long[pegCount];
+	}
+
+	/**
+	 * Checks whether a board can be solved from its current position.
+	 *
+	 * @param engine the board.
+	 * @param rules the rules the board is played under.
+	 * @return true for classic rules on three pegs, or when every disk is on one peg.
+	 */
+	public static boolean supports(HanoiEngine engine, RuleVariant rules) {
+		if (engine.pegCount() == 3 && rules == RuleVariant.CLASSIC) return true;
+		for (int i = 0; i < engine.pegCount(); i++) if (engine.height(i) == engine.totalDisk()) return true;
+		return false;
+	}
+
+	/**
+	 * Starts playing the solution from a board on the producer thread.
+	 *
+	 * @param engine the board to solve; it is copied, not modified.
+	 * @param rules the rules the board is played under.
+	 * @param movesPerSecond the initial rate.
+	 */
+	public void start(HanoiEngine engine, RuleVariant rules, double movesPerSecond) {
+		stop();
+		this.rules = rules;
+		board.reset(engine.totalDisk(), 0);
+		engine.copyPegs(shared);
+		board.setPegs(shared);
+		moves = sharedMoves = 0;
+		rate = Math.clamp(movesPerSecond, MIN_RATE, MAX_RATE);
+		finished = false;
+		running = true;
+		producer = new Thread(this::produce, "auto-solver");
+		producer.setDaemon(true);
+		producer.start();
+	}
+
+	/**
+	 * Stops the producer and waits for it to exit. The last published board stays readable.
+	 */
+	public void stop() {
+		running = false;
+		if (producer == null) return;
+		LockSupport.unpark(producer);
+		try {
+			producer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		producer = null;
+	}
+
+	/**
+	 * Changes the rate of a running solve.
+	 *
+	 * @param movesPerSecond the new rate.
+	 */
+	public void setRate(double movesPerSecond) {
+		rate = Math.clamp(movesPerSecond, MIN_RATE, MAX_RATE);
+		if (producer != null) LockSupport.unpark(producer);
+	}
+
+	/**
+	 * Checks whether the producer is playing moves.
+	 *
+	 * @return true until the solve ends or is stopped.
+	 */
+	public boolean isRunning() {
+		return running && !finished;
+	}
+
+	/**
+	 * Checks whether every move of the solution has been published.
+	 *
+	 * @return true once the board read by {@link #read} is solved.
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Copies the latest published board. Never blocks the producer.
+	 *
+	 * @param pegs receives one bitmask per peg.
+	 * @return the number of moves played to reach that board.
+	 */
+	public long read(long[] pegs) {
+		while (true) {
+			long before = sequence;
+			if ((before & 1) == 0) {
+				System.arraycopy(shared, 0, pegs, 0, shared.length);
+				long played = sharedMoves;
+				VarHandle.loadLoadFence();
+				if (sequence == before) return played;
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	private void publish() {
+		long s = sequence;
+		sequence = s + 1;
+		VarHandle.storeStoreFence();
+		board.copyPegs(shared);
+		sharedMoves = moves;
+		sequence = s + 2;
+	}
+
+	private void produce() {
+		epochNanos = System.nanoTime();
+		epochMoves = 0;
+		epochRate = rate;
+		budget = 1;
+		if (rules != RuleVariant.CLASSIC) solveVariant();
+		else if (board.pegCount() == 3) solve(board.totalDisk() - 1, goal);
+		else solveTower();
+		publish();
+		finished = running;
+	}
+
+	/**
+	 * Puts disks 0 to d on a target peg, moving as few disks as possible.
+	 */
+	private void solve(int d, int target) {
+		for (; d >= 0 && running; d--) {
+			int peg = board.pegOf(d);
+			if (peg == target) continue;
+			int spare = 3 - peg - target;
+			solve(d - 1, spare);
+			play(peg, target);
+			HanoiSolver tower = new HanoiSolver(d, spare, target);
+			while (running && tower.hasNext()) {
+				int move = tower.next();
+				play(Moves.from(move), Moves.to(move));
+			}
+			return;
+		}
+	}
+
+	private void solveTower() {
+		int from = board.pegOf(board.totalDisk() - 1);
+		if (from == goal) return;
+		int[] solution = new FrameStewartSolver(board.totalDisk(), board.pegCount()).solve();
+		// The solver moves the tower from peg 0 to the last peg; map its pegs to ours.
+		int last = board.pegCount() - 1;
+		int[] peg = new int[board.pegCount()];
+		peg[0] = from;
+		peg[last] = goal;
+		for (int i = 0, spare = 1; i <= last; i++) if (i != from && i != goal) peg[spare++] = i;
+		for (int i = 0; i < solution.length && running; i++) play(peg[Moves.from(solution[i])], peg[Moves.to(solution[i])]);
+	}
+
+	private void solveVariant() {
+		int from = board.pegOf(board.totalDisk() - 1);
+		if (from == goal) return;
+		RuleVariant.Solver tower = rules.solver(board.totalDisk(), from, goal);
+		while (running && tower.hasNext()) {
+			int move = tower.next();
+			play(Moves.from(move), Moves.to(move));
+		}
+	}
+
+	/**
+	 * Plays one move, then publishes and waits for the clock when the batch is done.
+	 */
+	private void play(int from, int to) {
+		board.move(from, to);
+		moves++;
+		if (--budget > 0) return;
+		publish();
+		budget = awaitBudget();
+	}
+
+	/**
+	 * Waits until at least one more move is due at the current rate.
+	 *
+	 * @return the number of moves due, capped so that the board is published every millisecond.
+	 */
+	private long awaitBudget() {
+		while (running) {
+			long now = System.nanoTime();
+			double r = rate;
+			if (r != epochRate) {
+				epochNanos = now;
+				epochMoves = moves;
+				epochRate = r;
+			}
+			long due = epochMoves + 1 + (long) ((now - epochNanos) * r / 1e9) - moves;
+			if (due > 0) return Math.max(1, Math.min(due, (long) (r * PUBLISH_NANOS / 1e9)));
+			LockSupport.parkNanos(epochNanos + (long) ((moves - epochMoves) * 1e9 / r) - now + 1);
+		}
+		return Long.MAX_VALUE;
+	}
+}
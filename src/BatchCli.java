@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BatchCli solves and verifies batches of puzzles without a display. It is
+ * a second entry point next to {@link App}: it never loads AWT, so it runs
+ * on headless servers. Each line of the input file is one job:
+ * <pre>
+ * solve  disks=20 pegs=3 [start=&lt;pegs&gt;] [goal=&lt;peg&gt;]
+ * verify disks=3 pegs=3 [start=&lt;pegs&gt;] [goal=&lt;peg&gt;] moves=02,01,21,02,10,12,02
+ * </pre>
+ * {@code start} gives the peg of every disk from the largest to the
+ * smallest as hex digits; by default the tower is on peg 0 and the goal is
+ * the last peg. A move is the hex digits of its source and destination
+ * pegs. Blank lines and lines starting with {@code #} are skipped.
+ * <p>
+ * {@code solve} prints the optimal number of moves. {@code verify} checks
+ * that every move is legal, that the board ends solved, and whether the
+ * solution is optimal. Optimal lengths are known for any three-peg board,
+ * for complete towers on more pegs (Frame-Stewart), and for any four-peg
+ * board when a {@link FourPegTablebase} of that size is given.
+ * <p>
+ * Jobs run on virtual threads, one per job, and the run ends with a report
+ * of throughput and per-job latency percentiles.
+ */
+public class BatchCli {
+	/**
+	 * The outcome of one job.
+	 *
+	 * @param line the input line number.
+	 * @param command solve or verify.
+	 * @param status ok, illegal, unsolved, suboptimal, unsupported or error.
+	 * @param moves the moves checked, or the optimal length for a solve.
+	 * @param optimal the optimal length, or -1 if unknown.
+	 * @param detail an explanation for failures, or an empty string.
+	 * @param nanos the time spent on the job.
+	 */
+	record Outcome(int line, String command, String status, long moves, long optimal, String detail, long nanos) {
+	}
+
+	private final FourPegTablebase tablebase; // Optional exact distances for four pegs.
+
+	BatchCli(FourPegTablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * Runs a batch from the command line.
+	 *
+	 * @param args {@code [--tablebase <file>] <input> [<output>]}
+	 * @throws Exception if the input cannot be read or the output written
+	 */
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		List<String> files = new ArrayList<>();
+		Path tablebaseFile = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--tablebase") && i + 1 < args.length) tablebaseFile = Path.of(args[++i]);
+			else files.add(args[i]);
+		}
+		if (files.isEmpty() || files.size() > 2) {
+			System.err.println("usage: BatchCli [--tablebase <file>] <input> [<output>]");
+			System.exit(2);
+		}
+
+		FourPegTablebase tablebase = tablebaseFile == null ? null : FourPegTablebase.open(tablebaseFile);
+		List<String> lines = Files.readAllLines(Path.of(files.get(0)));
+		long start = System.nanoTime();
+		List<Outcome> outcomes = new BatchCli(tablebase).run(lines);
+		long wallNanos = System.nanoTime() - start;
+
+		try (PrintStream out = files.size() == 2 ? new PrintStream(Files.newOutputStream(Path.of(files.get(1)))) : null) {
+			PrintStream results = out != null ? out : System.out;
+			for (Outcome o : outcomes) {
+				results.printf("%d %s moves=%d optimal=%d%s%n", o.line(), o.status(), o.moves(), o.optimal(), o.detail().isEmpty() ? "" : " " + o.detail());
+			}
+		}
+		report(outcomes, wallNanos, System.out);
+		if (tablebase != null) tablebase.close();
+	}
+
+	/**
+	 * Runs every job of a batch, one virtual thread per job.
+	 *
+	 * @param lines the lines of the input file.
+	 * @return the outcomes in input order.
+	 */
+	List<Outcome> run(List<String> lines) throws IOException {
+		List<Future<Outcome>> futures = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < lines.size(); i++) {
+				String line = lines.get(i).strip();
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				int number = i + 1;
+				futures.add(executor.submit(() -> runJob(number, line)));
+			}
+		}
+		List<Outcome> outcomes = new ArrayList<>(futures.size());
+		for (Future<Outcome> future : futures) {
+			try {
+				outcomes.add(future.get());
+			} catch (Exception e) {
+				throw new IOException("Job failed", e);
+			}
+		}
+		return outcomes;
+	}
+
+	private Outcome runJob(int line, String text) {
+		long start = System.nanoTime();
+		try {
+			String[] tokens = text.split("\\s+");
+			int disks = -1, pegs = 3, goal = -1;
+			String startPegs = null, moves = null;
+			for (int i = 1; i < tokens.length; i++) {
+				int eq = tokens[i].indexOf('=');
+				if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + tokens[i]);
+				String key = tokens[i].substring(0, eq), value = tokens[i].substring(eq + 1);
+				switch (key) {
+					case "disks" -> disks = Integer.parseInt(value);
+					case "pegs" -> pegs = Integer.parseInt(value);
+					case "goal" -> goal = Integer.parseInt(value);
+					case "start" -> startPegs = value;
+					case "moves" -> moves = value;
+					default -> throw new IllegalArgumentException("Unknown key: " + key);
+				}
+			}
+			if (disks < 0) throw new IllegalArgumentException("Missing disks");
+			if (goal < 0) goal = pegs - 1;
+			if (goal >= pegs) throw new IllegalArgumentException("No peg " + goal);
+			HanoiEngine engine = board(disks, pegs, startPegs);
+			long optimal = optimalMoves(engine, goal);
+
+			return switch (tokens[0]) {
+				case "solve" -> optimal < 0
+						? new Outcome(line, "solve", "unsupported", -1, -1, "no exact solver for this board", System.nanoTime() - start)
+						: new Outcome(line, "solve", "ok", optimal, optimal, "", System.nanoTime() - start);
+				case "verify" -> verify(line, engine, goal, moves == null ? "" : moves, optimal, start);
+				default -> throw new IllegalArgumentException("Unknown command: " + tokens[0]);
+			};
+		} catch (RuntimeException e) {
+			return new Outcome(line, text.split("\\s+", 2)[0], "error", -1, -1, e.getMessage(), System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Builds the start board of a job.
+	 */
+	private static HanoiEngine board(int disks, int pegs, String startPegs) {
+		HanoiEngine engine = new HanoiEngine(pegs);
+		engine.reset(disks, 0);
+		if (startPegs == null) return engine;
+		if (startPegs.length() != disks) throw new IllegalArgumentException("start needs one peg per disk");
+		long[] board = new long[pegs];
+		for (int i = 0; i < disks; i++) {
+			int peg = Character.digit(startPegs.charAt(i), 16);
+			if (peg < 0 || peg >= pegs) throw new IllegalArgumentException("No peg " + startPegs.charAt(i));
+			board[peg] |= 1L << (disks - 1 - i);
+		}
+		engine.setPegs(board);
+		return engine;
+	}
+
+	/**
+	 * Returns the optimal solution length from a board, or -1 if no exact solver applies.
+	 */
+	private long optimalMoves(HanoiEngine engine, int goal) {
+		if (engine.pegCount() == 3) return HanoiSolver.distance(engine, goal);
+		if (engine.height(goal) == engine.totalDisk()) return 0;
+		for (int i = 0; i < engine.pegCount(); i++) {
+			if (engine.height(i) == engine.totalDisk()) return new FrameStewartSolver(engine.totalDisk(), engine.pegCount()).moveCount();
+		}
+		if (tablebase != null && engine.pegCount() == FourPegTablebase.PEGS && engine.totalDisk() == tablebase.totalDisk()
+				&& goal == FourPegTablebase.GOAL_PEG) {
+			return tablebase.distance(engine);
+		}
+		return -1;
+	}
+
+	private static Outcome verify(int line, HanoiEngine engine, int goal, String moves, long optimal, long start) {
+		long count = 0;
+		int at = 0;
+		while (at < moves.length()) {
+			int end = moves.indexOf(',', at);
+			if (end < 0) end = moves.length();
+			if (end - at != 2) return new Outcome(line, "verify", "error", count, optimal, "bad move at " + (count + 1), System.nanoTime() - start);
+			int from = Character.digit(moves.charAt(at), 16), to = Character.digit(moves.charAt(at + 1), 16);
+			count++;
+			if (from < 0 || to < 0 || from >= engine.pegCount() || to >= engine.pegCount() || !engine.move(from, to)) {
+				return new Outcome(line, "verify", "illegal", count, optimal, "move " + count + " " + moves.substring(at, end), System.nanoTime() - start);
+			}
+			at = end + 1;
+		}
+		String status = !engine.isSolved(goal) ? "unsolved" : optimal < 0 ? "ok" : count == optimal ? "ok" : "suboptimal";
+		return new Outcome(line, "verify", status, count, optimal, optimal < 0 && status.equals("ok") ? "optimality unknown" : "", System.nanoTime() - start);
+	}
+
+	/**
+	 * Prints the counts of each status, the throughput and the latency percentiles.
+	 */
+	private static void report(List<Outcome> outcomes, long wallNanos, PrintStream out) {
+		LatencyHistogram latency = new LatencyHistogram();
+		Map<String, Integer> statuses = new TreeMap<>();
+		long moves = 0;
+		for (Outcome o : outcomes) {
+			latency.record(o.nanos());
+			statuses.merge(o.status(), 1, Integer::sum);
+			if (o.command().equals("verify") && o.moves() > 0) moves += o.moves();
+		}
+		double seconds = wallNanos / 1e9;
+		out.printf("jobs %d in %.3f s on %d cores: %.0f jobs/s, %.0f moves verified/s%n",
+				outcomes.size(), seconds, Runtime.getRuntime().availableProcessors(), outcomes.size() / seconds, moves / seconds);
+		out.println("status " + statuses);
+		out.printf("latency p50 %.1f us  p90 %.1f us  p99 %.1f us  max %.1f us  mean %.1f us%n",
+				latency.percentile(50) / 1e3, latency.percentile(90) / 1e3, latency.percentile(99) / 1e3, latency.max() / 1e3, latency.mean() / 1e3);
+	}
+}
@@ -0,0 +1,41 @@
+import java.awt.Color;
+
+/**
+ * BicolorRules paint the disks in two alternating colors and forbid a disk
+ * to rest on a disk of its own color. The classic optimal solution never
+ * puts a disk on one of the same parity, so it stays optimal here.
+ */
+final class BicolorRules implements RuleVariant {
+	private static final Color[] COLORS = {new Color(189, 87, 87), new Color(103, 137, 181)};
+
+	@Override
+	public String name() {
+		return "Bicolor";
+	}
+
+	@Override
+	public String description() {
+		return "A disk never rests on a disk of the same color";
+	}
+
+	@Override
+	public boolean supports(int pegCount) {
+		return pegCount == 3;
+	}
+
+	@Override
+	public boolean canMove(HanoiEngine board, int from, int to) {
+		int below = board.topDisk(to);
+		return board.canMove(from, to) && (below == -1 || ((below ^ board.topDisk(from)) & 1) == 1);
+	}
+
+	@Override
+	public RuleVariant.Solver solver(int totalDisk, int from, int to) {
+		return new HanoiSolver(totalDisk, from, to);
+	}
+
+	@Override
+	public Color diskColor(int index) {
+		return COLORS[index & 1];
+	}
+}
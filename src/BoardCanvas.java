@@ -0,0 +1,137 @@
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.util.List;
+import javax.swing.JPanel;
+
+/**
+ * BoardCanvas draws the whole game board on a single component from a
+ * display list. Disks are kept in an array ordered from bottom to top, so
+ * lifting a disk only reorders that array instead of removing and adding
+ * components, and a repaint never invalidates the container.
+ */
+public class BoardCanvas extends JPanel {
+	private Tower[] towers = new Tower[0]; // Towers, painted over the resting disks.
+	private Disk[] zOrder = new Disk[0]; // Disks from the bottom of the display list to its top.
+	private Disk liftedDisk; // The disk painted above everything else, or null.
+	private DiskRenderer diskRenderer; // Renderer shared by the disks, or null before the first board.
+	private final SpriteCache spriteCache; // Pre-rendered towers.
+
+	/**
+	 * Constructs an empty, transparent board canvas.
+	 *
+	 * @param spriteCache the cache the towers are painted from.
+	 */
+	public BoardCanvas(SpriteCache spriteCache) {
+		this.spriteCache = spriteCache;
+		setLayout(null);
+		setOpaque(false);
+	}
+
+	/**
+	 * Replaces the display list with a new board.
+	 *
+	 * @param towers the towers of the board.
+	 * @param disks the disks of the board, from the largest to the smallest.
+	 * @param diskRenderer the renderer shared by the disks.
+	 */
+	public void setBoard(Tower[] towers, List<Disk> disks, DiskRenderer diskRenderer) {
+		this.towers = towers.clone();
+		this.diskRenderer = diskRenderer;
+		this.zOrder = disks.toArray(new Disk[0]);
+		this.liftedDisk = null;
+		repaint();
+	}
+
+	/**
+	 * Moves a disk to the top of the display list, or puts the lifted disk
+	 * back in its resting slot when null is given. Resting disks are ordered
+	 * by size, since a disk always lies above the larger ones it overlaps.
+	 *
+	 * @param disk the disk to lift, or null to settle the lifted disk.
+	 */
+	public void lift(Disk disk) {
+		if (liftedDisk != null) {
+			int i = zOrder.length - 1;
+			while (0 < i && zOrder[i - 1].rank() < liftedDisk.rank()) {
+				zOrder[i] = zOrder[i - 1];
+				i--;
+			}
+			zOrder[i] = liftedDisk;
+		}
+		liftedDisk = disk;
+		if (disk != null) {
+			int i = indexOf(disk);
+			System.arraycopy(zOrder, i + 1, zOrder, i, zOrder.length - i - 1);
+			zOrder[zOrder.length - 1] = disk;
+		}
+		repaint();
+	}
+
+	/**
+	 * Finds the topmost disk whose shape contains the given point.
+	 *
+	 * @param x the x-coordinate on the canvas.
+	 * @param y the y-coordinate on the canvas.
+	 * @return the disk under the point, or null if there is none.
+	 */
+	public Disk diskAt(int x, int y) {
+		for (int i = zOrder.length - 1; 0 <= i; i--) {
+			Disk disk = zOrder[i];
+			if (disk.contains(x - disk.getX(), y - disk.getY())) return disk;
+		}
+		return null;
+	}
+
+	/**
+	 * Paints the display list: resting disks, then towers, then the lifted disk.
+	 * Items outside the clip are skipped.
+	 *
+	 * @param g the Graphics object used for painting.
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		long start = System.nanoTime();
+		super.paintComponent(g);
+		Graphics2D g2 = (Graphics2D) g.create();
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		Rectangle clip = g2.getClipBounds();
+
+		if (diskRenderer != null) {
+			GameEvents.Paint event = new GameEvents.Paint();
+			event.begin();
+			diskRenderer.paint(g2, zOrder, liftedDisk, clip);
+			event.component = "Disk";
+			event.items = zOrder.length;
+			event.commit();
+		}
+		for (Tower tower : towers) {
+			if (clip == null || clip.intersects(tower.getBounds())) {
+				GameEvents.Paint event = new GameEvents.Paint();
+				event.begin();
+				tower.paint(g2, spriteCache);
+				event.component = "Tower";
+				event.index = tower.towerIndex();
+				event.commit();
+			}
+		}
+		if (liftedDisk != null) {
+			GameEvents.Paint event = new GameEvents.Paint();
+			event.begin();
+			liftedDisk.paint(g2);
+			event.component = "Disk";
+			event.index = liftedDisk.towerIndex();
+			event.items = 1;
+			event.commit();
+		}
+
+		g2.dispose();
+		PerfOverlay.recordFrame(System.nanoTime() - start);
+	}
+
+	private int indexOf(Disk disk) {
+		for (int i = 0; i < zOrder.length; i++) if (zOrder[i] == disk) return i;
+		throw new IllegalArgumentException("Disk not on this board");
+	}
+}
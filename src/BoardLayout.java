@@ -0,0 +1,202 @@
+import java.awt.Dimension;
+import java.util.Arrays;
+
+/**
+ * BoardLayout computes the geometry of a game board once, for any number of
+ * towers and disks and any screen size. Towers are spread over equal slots
+ * centered on the screen, and the resting place of every disk only depends
+ * on its tower and its stack level, so snapping a disk is an array lookup.
+ * Drop targets are answered by a binary search over the tower columns,
+ * which are stored sorted from left to right.
+ * <p>
+ * Disks get thinner as their number grows, so that the tallest stack fits
+ * between the panels above and below the board. Below {@link #THIN_HEIGHT}
+ * the perspective ovals no longer read, and disks are laid out as flat
+ * bars stacked edge to edge instead (see {@link #isThin()}).
+ */
+public class BoardLayout {
+	public static final int TOWER_DIAMETER = 64; // Width of a tower shaft.
+	public static final int DISK_HEIGHT = 30; // Thickness of a disk when the stack fits the screen.
+	public static final int THIN_HEIGHT = 16; // Thickness below which disks are drawn as flat bars.
+	private static final int RESERVED_HEIGHT = 280; // Screen height kept for the panels around the board.
+	private static final int SLOT_GAP = 50; // Space between two tower slots.
+	private static final int SCREEN_MARGIN = 103; // Space kept free on the sides of the board.
+	private final int towerCount;
+	private final int totalDisk;
+	private final int towerY; // Top of every tower.
+	private final int towerHeight; // Height of every tower shaft.
+	private final int towerDepth; // Height of the oval ends of a tower.
+	private final int diskHeight; // Thickness of every disk.
+	private final boolean thin; // Whether disks are flat bars without ovals.
+	private final int[] towerX; // Left edge of each tower shaft, increasing.
+	private final int[] columnRight; // Right edge of the drop column of each tower.
+	private final int[] diskDiameter; // Diameter of each disk, by rank.
+	private final int[] levelY; // Top edge of the oval of a disk of depth 0 resting at each level.
+
+	/**
+	 * Computes the layout of a board.
+	 *
+	 * @param screenSize the size of the screen the board is drawn on.
+	 * @param towerCount the number of towers.
+	 * @param totalDisk the number of disks.
+	 */
+	public BoardLayout(Dimension screenSize, int towerCount, int totalDisk) {
+		this.towerCount = towerCount;
+		this.totalDisk = totalDisk;
+
+		// The largest disk sets the slot width; it shrinks when the slots would not fit.
+		int slotWidth = 160 + totalDisk * 20;
+		int available = (screenSize.width - SCREEN_MARGIN - (towerCount - 1) * SLOT_GAP) / towerCount;
+		double scale = available < slotWidth ? (double) Math.max(available, TOWER_DIAMETER + 20) / slotWidth : 1;
+		slotWidth = (int) (slotWidth * scale);
+
+		// Once the smallest disks would shrink to the shaft width, the sizes are spread evenly instead.
+		this.diskDiameter = new int[totalDisk];
+		int smallest = TOWER_DIAMETER + 10, largest = Math.max(smallest, (int) ((180 + totalDisk * 20) * scale));
+		boolean spread = (int) (200 * scale) < smallest;
+		for (int rank = 0; rank < totalDisk; rank++) {
+			diskDiameter[rank] = spread ? smallest + (largest - smallest) * rank / Math.max(1, totalDisk - 1) : (int) ((200 + rank * 20) * scale);
+		}
+
+		this.diskHeight = Math.clamp((screenSize.height - RESERVED_HEIGHT) / Math.max(1, totalDisk), 2, DISK_HEIGHT);
+		this.thin = diskHeight < THIN_HEIGHT;
+		this.towerHeight = totalDisk * diskHeight + 50;
+		this.towerDepth = (int) ((double) TOWER_DIAMETER * Disk.SINE);
+		this.towerY = (screenSize.height - towerHeight - 30) / 2;
+
+		int xGame = (screenSize.width - 3 - towerCount * slotWidth - (towerCount - 1) * SLOT_GAP) / 2;
+		this.towerX = new int[towerCount];
+		this.columnRight = new int[towerCount];
+		for (int i = 0; i < towerCount; i++) {
+			towerX[i] = xGame + (slotWidth + SLOT_GAP) * i + (slotWidth - TOWER_DIAMETER - 1) / 2;
+			columnRight[i] = towerX[i] - 1 + TOWER_DIAMETER + 2;
+		}
+
+		int inferiorBound = towerY + towerHeight + 15;
+		int step = thin ? diskHeight : (int) ((double) diskHeight * Disk.COSINE);
+		this.levelY = new int[Math.max(1, totalDisk)];
+		for (int level = 0; level < levelY.length; level++) {
+			levelY[level] = inferiorBound - diskHeight - level * step;
+		}
+	}
+
+	/**
+	 * Finds the tower whose column contains the given point.
+	 *
+	 * @param x the x-coordinate on the board canvas.
+	 * @param y the y-coordinate on the board canvas.
+	 * @return the tower index, or -1 if the point is outside every column.
+	 */
+	public int dropTarget(int x, int y) {
+		if (y < towerY || towerY + towerHeight + towerDepth + 1 < y) return -1;
+		int i = Arrays.binarySearch(towerX, x + 1);
+		if (i < 0) i = -i - 2; // Last column starting at or before x.
+		return 0 <= i && x <= columnRight[i] ? i : -1;
+	}
+
+	/**
+	 * Returns the x-coordinate of a disk resting on a tower.
+	 *
+	 * @param rank the rank of the disk.
+	 * @param tower the tower index.
+	 * @return the left edge of the disk.
+	 */
+	public int diskX(int rank, int tower) {
+		return towerX[tower] + TOWER_DIAMETER / 2 - diskDiameter[rank] / 2;
+	}
+
+	/**
+	 * Returns the y-coordinate of a disk resting at a stack level.
+	 *
+	 * @param rank the rank of the disk.
+	 * @param level the number of disks below it.
+	 * @return the top edge of the disk.
+	 */
+	public int diskY(int rank, int level) {
+		return levelY[level] - diskDepth(rank) / 2;
+	}
+
+	/**
+	 * Returns the diameter of a disk.
+	 *
+	 * @param rank the rank of the disk, 0 being the smallest.
+	 * @return the disk diameter.
+	 */
+	public int diskDiameter(int rank) {
+		return diskDiameter[rank];
+	}
+
+	/**
+	 * Returns the height of the oval faces of a disk.
+	 *
+	 * @param rank the rank of the disk.
+	 * @return the disk depth, 0 for flat bars.
+	 */
+	public int diskDepth(int rank) {
+		return thin ? 0 : (int) ((double) diskDiameter[rank] * Disk.SINE);
+	}
+
+	/**
+	 * Returns the thickness of every disk, ovals excluded.
+	 *
+	 * @return the disk height.
+	 */
+	public int diskHeight() {
+		return diskHeight;
+	}
+
+	/**
+	 * Checks whether the disks are too thin for their perspective ovals.
+	 *
+	 * @return true if disks are drawn as flat bars, false otherwise.
+	 */
+	public boolean isThin() {
+		return thin;
+	}
+
+	/**
+	 * Returns the x-coordinate given to a tower, one pixel right of its bounds.
+	 *
+	 * @param tower the tower index.
+	 * @return the tower x-coordinate.
+	 */
+	public int towerX(int tower) {
+		return towerX[tower];
+	}
+
+	/**
+	 * Returns the y-coordinate of the top of every tower.
+	 *
+	 * @return the tower y-coordinate.
+	 */
+	public int towerY() {
+		return towerY;
+	}
+
+	/**
+	 * Returns the height of every tower shaft.
+	 *
+	 * @return the tower height.
+	 */
+	public int towerHeight() {
+		return towerHeight;
+	}
+
+	/**
+	 * Returns the number of towers of the board.
+	 *
+	 * @return the tower count.
+	 */
+	public int towerCount() {
+		return towerCount;
+	}
+
+	/**
+	 * Returns the number of disks of the board.
+	 *
+	 * @return the disk count.
+	 */
+	public int totalDisk() {
+		return totalDisk;
+	}
+}
@@ -0,0 +1,62 @@
+import java.util.List;
+
+/**
+ * BoardLookups finds disks of a board from its engine and its list of disk
+ * views, which is ordered from the largest disk to the smallest. The game
+ * runs these lookups on every drag and drop; they take the engine and the
+ * list as arguments so they can be measured without a window.
+ */
+public final class BoardLookups {
+	private BoardLookups() {
+	}
+
+	/**
+	 * Finds the disk of a given diameter.
+	 *
+	 * @param disks the disks of the board, largest first.
+	 * @param diskDiameter the diameter to look for.
+	 * @return the disk, or null if none has that diameter.
+	 */
+	public static Disk diskByDiameter(List<Disk> disks, int diskDiameter) {
+		for (int i = 0; i < disks.size(); i++) if (disks.get(i).diskDiameter() == diskDiameter) return disks.get(i);
+		return null;
+	}
+
+	/**
+	 * Returns the disk right below another one on its peg.
+	 *
+	 * @param engine the board.
+	 * @param disks the disks of the board, largest first.
+	 * @param disk the upper disk.
+	 * @return the disk below, or null if the disk is at the bottom of its peg.
+	 */
+	public static Disk inferiorDiskOf(HanoiEngine engine, List<Disk> disks, Disk disk) {
+		int index = indexOfInferiorDiskOf(engine, disks, disk);
+		return index == -1 ? null : disks.get(index);
+	}
+
+	/**
+	 * Returns the index in the disk list of the disk right below another one on its peg.
+	 *
+	 * @param engine the board.
+	 * @param disks the disks of the board, largest first.
+	 * @param disk the upper disk.
+	 * @return the index, or -1 if the disk is at the bottom of its peg.
+	 */
+	public static int indexOfInferiorDiskOf(HanoiEngine engine, List<Disk> disks, Disk disk) {
+		int below = engine.diskBelow(disk.rank());
+		return below == -1 ? -1 : disks.size() - 1 - below;
+	}
+
+	/**
+	 * Checks whether a peg holds every disk of the board.
+	 *
+	 * @param engine the board.
+	 * @param peg the peg.
+	 * @param totalDisk the total number of disks.
+	 * @return true if the tower on the peg is complete, false otherwise.
+	 */
+	public static boolean isCompleteTower(HanoiEngine engine, int peg, int totalDisk) {
+		return engine.height(peg) == totalDisk;
+	}
+}
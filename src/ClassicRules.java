@@ -0,0 +1,31 @@
+/**
+ * ClassicRules are the rules of the original puzzle: a disk may move from
+ * any peg to any other, never onto a smaller disk. They are the only rules
+ * played on more than three pegs.
+ */
+final class ClassicRules implements RuleVariant {
+	@Override
+	public String name() {
+		return "Classic";
+	}
+
+	@Override
+	public String description() {
+		return "Any move, never onto a smaller disk";
+	}
+
+	@Override
+	public boolean supports(int pegCount) {
+		return true;
+	}
+
+	@Override
+	public boolean canMove(HanoiEngine board, int from, int to) {
+		return board.canMove(from, to);
+	}
+
+	@Override
+	public RuleVariant.Solver solver(int totalDisk, int from, int to) {
+		return new HanoiSolver(totalDisk, from, to);
+	}
+}
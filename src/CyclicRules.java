@@ -0,0 +1,44 @@
+/**
+ * CyclicRules only let a disk turn clockwise around the three pegs: one peg
+ * to the right, or from the last peg back to the first. Moving a tower one
+ * peg clockwise takes 2R(n-1)+1 moves, the smaller disks going round the
+ * other way twice; moving it two pegs takes 2R(n-1)+Q(n-1)+2, where Q and
+ * R are those two costs for n-1 disks.
+ */
+final class CyclicRules implements RuleVariant {
+	private static final int[][] PLAN = new int[9][];
+
+	static {
+		for (int from = 0; from < 3; from++) {
+			int next = (from + 1) % 3, last = (from + 2) % 3;
+			PLAN[from * 3 + next] = new int[]{PlanSolver.tower(from, last), PlanSolver.disk(from, next), PlanSolver.tower(last, next)};
+			PLAN[from * 3 + last] = new int[]{PlanSolver.tower(from, last), PlanSolver.disk(from, next), PlanSolver.tower(last, from),
+					PlanSolver.disk(next, last), PlanSolver.tower(from, last)};
+		}
+	}
+
+	@Override
+	public String name() {
+		return "Cyclic";
+	}
+
+	@Override
+	public String description() {
+		return "Disks only move clockwise: one peg right, or from the last peg to the first";
+	}
+
+	@Override
+	public boolean supports(int pegCount) {
+		return pegCount == 3;
+	}
+
+	@Override
+	public boolean canMove(HanoiEngine board, int from, int to) {
+		return to == (from == 2 ? 0 : from + 1) && board.canMove(from, to);
+	}
+
+	@Override
+	public RuleVariant.Solver solver(int totalDisk, int from, int to) {
+		return new PlanSolver(PLAN, totalDisk, from, to);
+	}
+}
@@ -1,98 +1,131 @@
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Cursor;
 import java.awt.Dimension;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.Shape;
-import java.awt.geom.Area;
-import java.awt.geom.Ellipse2D;
-import java.awt.geom.Rectangle2D;
-import javax.swing.JPanel;
+import java.awt.Rectangle;
 
 /**
- * The Disk class represents a disk shape component in a graphical application.
- * It defines the properties and behaviors of the disk, such as its dimensions,
- * color, and position on a tower in a graphical UI.
+ * The Disk class represents a disk drawn on the board canvas. It only holds
+ * what differs from one disk to the next, its rank and position; geometry,
+ * color, painting and hit tests are shared by all the disks of a board
+ * through their {@link DiskRenderer}.
  */
-public class Disk extends JPanel {
+public class Disk {
 	private boolean isTop = true; // Indicates if the disk is the topmost on its tower.
-	private final Color color; // The color of the disk.
-	private final int diskDepth; // The "depth" of the disk for visual appearance.
-	private final int diskDiameter; // The diameter of the disk.
-	private final int diskHeight; // The height of the disk.
+	private final int rank; // The engine index of the disk, 0 being the smallest.
+	private final DiskRenderer renderer; // The renderer shared by the disks of the board.
 	private final MyGraphics frame; // Reference to the parent component for graphical context.
-	private final Shape clickableShape; // The interactive shape area for mouse events.
-	private int mouseX, mouseY, towerIndex = 0; // Position and tower details for the disk.
+	private final Rectangle bounds = new Rectangle(); // The position of the disk on the board canvas.
+	private int mouseX, mouseY; // Position of the mouse pointer relative to the disk.
 	public static final double COSINE = 0.795269879146; // Constant for angle calculations.
 	public static final double SINE = 0.4375; // Constant for angle calculations.
 
 	/**
-	 * Constructs a Disk with specified color, height, diameter, and graphical frame reference.
+	 * Constructs a Disk with specified rank, shared renderer, and graphical frame reference.
 	 *
-	 * @param color The color of the disk.
-	 * @param diskHeight The height of the disk.
-	 * @param diskDiameter The diameter of the disk.
+	 * @param rank The engine index of the disk, 0 being the smallest.
+	 * @param renderer The renderer shared by the disks of the board.
 	 * @param frame The parent frame for graphical context.
 	 */
-	public Disk(Color color, int diskHeight, int diskDiameter, MyGraphics frame) {
-		this.color = color;
-		this.diskHeight = diskHeight;
-		this.diskDiameter = diskDiameter;
-        this.diskDepth = (int) ((double) diskDiameter * SINE);
+	public Disk(int rank, DiskRenderer renderer, MyGraphics frame) {
+		this.rank = rank;
+		this.renderer = renderer;
 		this.frame = frame;
+	}
 
-		setCursor(new Cursor(Cursor.HAND_CURSOR));
-		setPreferredSize(new Dimension(diskDiameter, diskDepth + diskHeight));
-		setOpaque(false);
+	/**
+	 * Paints the disk at its position on the board canvas.
+	 *
+	 * @param g The antialiased Graphics context of the board canvas.
+	 */
+	public void paint(Graphics2D g) {
+		renderer.paint(g, rank, bounds.x, bounds.y);
+	}
 
-		Area area = new Area(new Ellipse2D.Double(0, 0, diskDiameter, diskDepth));
-        area.add(new Area(new Rectangle2D.Double(0, diskDepth / 2, diskDiameter, diskHeight)));
-        area.add(new Area(new Ellipse2D.Double(0, diskHeight, diskDiameter, diskDepth)));
-        clickableShape = area;
+	/**
+	 * Relocates the disk to its resting place on the tower and stack level the engine holds it at.
+	 */
+    public void relocateDisk() {
+		relocateDisk(frame.boardLayout(), frame.engine());
 	}
 
 	/**
-	 * Paints the disk component on the screen with its defined visual properties.
+	 * Relocates the disk to its resting place on a board without a window.
 	 *
-	 * @param g The Graphics context in which to paint.
+	 * @param layout The layout of the board.
+	 * @param engine The engine holding the disk.
 	 */
-	@Override
-	protected void paintComponent(Graphics g) {
-		super.paintComponent(g);
-		Graphics2D g2 = (Graphics2D) g.create();
-		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+	public void relocateDisk(BoardLayout layout, HanoiEngine engine) {
+		int x = layout.diskX(rank, engine.pegOf(rank));
+		int y = layout.diskY(rank, engine.levelOf(rank));
+        setBounds(x, y, renderer.width(rank) + 2, renderer.height(rank));
+	}
 
-		g2.setColor(color);
-		g2.fillOval(0, 0, diskDiameter, diskDepth);
-		g2.fillOval(0, diskHeight, diskDiameter, diskDepth);
-        g2.fillRect(0, diskDepth / 2, diskDiameter, diskHeight);
-		
-		g2.setColor(Color.BLACK);
-		g2.setStroke(new BasicStroke(1));
-		g2.drawArc(0, 0, diskDiameter, diskDepth, 0, -180);
+	/**
+	 * Determines whether the given point, relative to the disk, is inside the disk shape.
+	 *
+	 * @param x The x-coordinate relative to the disk.
+	 * @param y The y-coordinate relative to the disk.
+	 * @return True if the point is inside the disk, else false.
+	 */
+    public boolean contains(int x, int y) {
+		return renderer.contains(rank, x, y);
+	}
 
-		g2.dispose();
+	/**
+	 * Moves the disk on the board canvas.
+	 *
+	 * @param x The new x-coordinate.
+	 * @param y The new y-coordinate.
+	 * @param width The new width.
+	 * @param height The new height.
+	 */
+	public void setBounds(int x, int y, int width, int height) {
+		bounds.setBounds(x, y, width, height);
 	}
 
 	/**
-	 * Relocates the disk on the graphical interface to the specified tower axis and boundary.
+	 * Returns the area covered by the disk on the board canvas.
 	 *
-	 * @param towerAxis The axis position of the tower.
-	 * @param inferiorBound The lower boundary for disk placement.
+	 * @return A copy of the disk bounds.
 	 */
-    public void relocateDisk(int towerAxis, int inferiorBound) {
-		Dimension size = getPreferredSize();
-		int x = towerAxis + 32 - size.width / 2;
-		Disk inferiorDisk = frame.inferiorDiskOf(this);
-		int y = (inferiorDisk != null) ? inferiorDisk.getY() - (int) ((double) diskHeight * COSINE) - (inferiorDisk.diskDepth() - diskDepth) / 2 : inferiorBound - diskHeight - (diskDepth / 2);
-        setBounds(x, y, size.width + 2, size.height);
+	public Rectangle getBounds() {
+		return new Rectangle(bounds);
 	}
 
-	@Override
-    public boolean contains(int x, int y) {
-		return clickableShape.contains(x, y);
+	/**
+	 * Checks whether the disk lies partly inside an area of the board canvas.
+	 *
+	 * @param area The area, such as a repaint clip.
+	 * @return True if the disk bounds intersect the area, else false.
+	 */
+	public boolean intersects(Rectangle area) {
+		return bounds.intersects(area);
+	}
+
+	/**
+	 * Returns the x-coordinate of the disk on the board canvas.
+	 *
+	 * @return The x-coordinate.
+	 */
+	public int getX() {
+		return bounds.x;
+	}
+
+	/**
+	 * Returns the y-coordinate of the disk on the board canvas.
+	 *
+	 * @return The y-coordinate.
+	 */
+	public int getY() {
+		return bounds.y;
+	}
+
+	/**
+	 * Returns the size of the disk drawing.
+	 *
+	 * @return The preferred size of the disk.
+	 */
+	public Dimension getPreferredSize() {
+		return new Dimension(renderer.width(rank), renderer.height(rank));
 	}
 
 	/**
@@ -101,16 +134,15 @@ public class Disk extends JPanel {
 	 * @return The depth of the disk.
 	 */
     public int diskDepth() {
-		return this.diskDepth;
+		return renderer.depth(rank);
 	}
 
 	/**
-	 * Sets the disk as the topmost or not, changing the cursor appearance accordingly.
+	 * Sets the disk as the topmost or not, which decides whether it can be picked up.
 	 *
 	 * @param isTop True if the disk is the topmost, else false.
 	 */
     public void isTop(boolean isTop) {
-        setCursor(new Cursor(isTop ? Cursor.HAND_CURSOR : Cursor.DEFAULT_CURSOR));
 		this.isTop = isTop;
 	}
 	
@@ -129,9 +161,18 @@ public class Disk extends JPanel {
 	 * @return The disk's diameter.
 	 */
     public int diskDiameter() {
-        return diskDiameter;
+        return renderer.width(rank);
     }
 
+	/**
+	 * Returns the engine index of the disk.
+	 *
+	 * @return The rank of the disk, 0 being the smallest.
+	 */
+	public int rank() {
+		return rank;
+	}
+
 	/**
 	 * Returns the X coordinate of the mouse pointer relative to the disk.
 	 *
@@ -170,21 +211,12 @@ public class Disk extends JPanel {
 	}
 
 	/**
-	 * Returns the index of the tower where the disk is placed.
+	 * Returns the index of the tower where the disk is placed, as tracked by the game engine.
 	 *
 	 * @return The index of the tower.
 	 */
     public int towerIndex() {
-        return towerIndex;
-    }
-
-	/**
-	 * Updates the index of the tower where the disk is positioned.
-	 *
-	 * @param towerIndex The new tower index.
-	 */
-    public void towerIndex(int towerIndex) {
-        this.towerIndex = towerIndex;
+        return frame.engine().pegOf(rank);
     }
 }
 
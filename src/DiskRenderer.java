@@ -0,0 +1,212 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * DiskRenderer draws and hit-tests every disk of a board. It is the shared
+ * part of the disks: geometry and colors are kept per rank in primitive
+ * arrays, while a {@link Disk} only holds its rank and position. Hit tests
+ * are answered from the ellipse equations instead of a shape per disk.
+ * <p>
+ * Disks of a regular board are blitted from sprites rendered once in the
+ * {@link SpriteCache}. On a thin board (see {@link BoardLayout#isThin()})
+ * disks become flat bars using one of {@link #THIN_COLORS} colors, and a
+ * whole board of bars is filled with one path per color.
+ */
+public class DiskRenderer {
+	static final int THIN_COLORS = 8; // Colors cycled through by flat bars.
+	private static final float GOLDEN_RATIO = 0.618034f; // Hue step keeping neighbouring disks apart.
+	private final SpriteCache spriteCache;
+	private final boolean thin;
+	private final int height; // Thickness of every disk.
+	private final int[] diameter; // Diameter of each disk, by rank.
+	private final int[] depth; // Height of the oval faces of each disk, by rank.
+	private final Color[] color; // Color of each disk, by rank.
+	private final BufferedImage[] sprite; // Sprite of each disk, resolved on first paint.
+	private final Path2D.Float[] bars = new Path2D.Float[THIN_COLORS]; // Scratch paths of the batched bars.
+
+	/**
+	 * Constructs the renderer of the disks of a board.
+	 *
+	 * @param layout the layout of the board.
+	 * @param spriteCache the cache the disk sprites are drawn into.
+	 */
+	public DiskRenderer(BoardLayout layout, SpriteCache spriteCache) {
+		this(layout, spriteCache, RuleVariant.CLASSIC);
+	}
+
+	/**
+	 * Constructs the renderer of the disks of a board played under given rules.
+	 *
+	 * @param layout the layout of the board.
+	 * @param spriteCache the cache the disk sprites are drawn into.
+	 * @param rules the rules, which choose the disk colors.
+	 */
+	public DiskRenderer(BoardLayout layout, SpriteCache spriteCache, RuleVariant rules) {
+		int totalDisk = layout.totalDisk();
+		this.spriteCache = spriteCache;
+		this.thin = layout.isThin();
+		this.height = layout.diskHeight();
+		this.diameter = new int[totalDisk];
+		this.depth = new int[totalDisk];
+		this.color = new Color[totalDisk];
+		this.sprite = new BufferedImage[totalDisk];
+		for (int rank = 0; rank < totalDisk; rank++) {
+			diameter[rank] = layout.diskDiameter(rank);
+			depth[rank] = layout.diskDepth(rank);
+			int index = totalDisk - 1 - rank; // Colors run from the largest disk up.
+			color[rank] = rules.diskColor(thin ? index % THIN_COLORS : index);
+		}
+		for (int i = 0; i < THIN_COLORS; i++) bars[i] = new Path2D.Float();
+	}
+
+	/**
+	 * Returns a color of the procedural palette. Hues advance by the golden
+	 * ratio and lightness alternates, so that any two neighbouring disks
+	 * differ clearly whatever the disk count.
+	 *
+	 * @param index the position of the disk from the largest one.
+	 * @return the color.
+	 */
+	static Color color(int index) {
+		float hue = (0.17f + index * GOLDEN_RATIO) % 1;
+		return Color.getHSBColor(hue, (index & 1) == 0 ? 0.5f : 0.65f, (index & 2) == 0 ? 0.62f : 0.78f);
+	}
+
+	/**
+	 * Paints one disk.
+	 *
+	 * @param g the antialiased Graphics context of the board canvas.
+	 * @param rank the rank of the disk.
+	 * @param x the left edge of the disk.
+	 * @param y the top edge of the disk.
+	 */
+	public void paint(Graphics2D g, int rank, int x, int y) {
+		if (thin) {
+			g.setColor(color[rank]);
+			g.fillRect(x, y, diameter[rank], barHeight());
+			return;
+		}
+		if (sprite[rank] == null) {
+			sprite[rank] = spriteCache.sprite(SpriteCache.DISK, color[rank].getRGB(), diameter[rank], depth[rank] + height, g2 -> render(g2, rank));
+		}
+		g.drawImage(sprite[rank], x, y, null);
+	}
+
+	/**
+	 * Paints disks in order, skipping one of them and the ones outside the
+	 * clip. Flat bars are gathered into one path per color and filled
+	 * together; the bars of a stack never overlap, so their order does not
+	 * matter.
+	 *
+	 * @param g the antialiased Graphics context of the board canvas.
+	 * @param disks the disks, from the bottom of the display list to its top.
+	 * @param skip a disk not to paint, or null.
+	 * @param clip the area to repaint, or null for everything.
+	 */
+	public void paint(Graphics2D g, Disk[] disks, Disk skip, Rectangle clip) {
+		if (!thin) {
+			for (Disk disk : disks) {
+				if (disk != skip && (clip == null || disk.intersects(clip))) paint(g, disk.rank(), disk.getX(), disk.getY());
+			}
+			return;
+		}
+		for (Path2D.Float path : bars) path.reset();
+		int barHeight = barHeight();
+		for (Disk disk : disks) {
+			if (disk == skip || (clip != null && !disk.intersects(clip))) continue;
+			int x = disk.getX(), y = disk.getY(), w = diameter[disk.rank()];
+			Path2D.Float path = bars[(diameter.length - 1 - disk.rank()) % THIN_COLORS];
+			path.moveTo(x, y);
+			path.lineTo(x + w, y);
+			path.lineTo(x + w, y + barHeight);
+			path.lineTo(x, y + barHeight);
+			path.closePath();
+		}
+		Object antialiasing = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+		for (int i = 0; i < THIN_COLORS && i < color.length; i++) {
+			g.setColor(color[color.length - 1 - i]);
+			g.fill(bars[i]);
+		}
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+	}
+
+	/**
+	 * Draws the geometry of a disk with its top left corner at the origin.
+	 *
+	 * @param g2 the antialiased Graphics context of the sprite.
+	 * @param rank the rank of the disk.
+	 */
+	private void render(Graphics2D g2, int rank) {
+		int d = diameter[rank], e = depth[rank];
+		g2.setColor(color[rank]);
+		g2.fillOval(0, 0, d, e);
+		g2.fillOval(0, height, d, e);
+		g2.fillRect(0, e / 2, d, height);
+
+		g2.setColor(Color.BLACK);
+		g2.setStroke(SpriteCache.OUTLINE);
+		g2.drawArc(0, 0, d, e, 0, -180);
+	}
+
+	/**
+	 * Determines whether a point, relative to a disk, is inside the disk:
+	 * inside its top oval, its bottom oval or the band between their centers.
+	 *
+	 * @param rank the rank of the disk.
+	 * @param x the x-coordinate relative to the disk.
+	 * @param y the y-coordinate relative to the disk.
+	 * @return true if the point is inside the disk, false otherwise.
+	 */
+	public boolean contains(int rank, int x, int y) {
+		int d = diameter[rank], e = depth[rank];
+		if (x < 0 || x >= d || y < 0) return false;
+		if (thin) return y < barHeight();
+		if (y >= e / 2 && y < e / 2 + height) return true;
+		// The ovals, of half axes d/2 and e/2, are centered at y = e/2 and y = height + e/2.
+		double dx = (x - d / 2.0) / (d / 2.0);
+		double top = (y - e / 2.0) / (e / 2.0), bottom = (y - height - e / 2.0) / (e / 2.0);
+		return dx * dx + top * top < 1 || dx * dx + bottom * bottom < 1;
+	}
+
+	/**
+	 * Returns the width of a disk drawing.
+	 *
+	 * @param rank the rank of the disk.
+	 * @return the disk diameter.
+	 */
+	public int width(int rank) {
+		return diameter[rank];
+	}
+
+	/**
+	 * Returns the height of a disk drawing, ovals included.
+	 *
+	 * @param rank the rank of the disk.
+	 * @return the disk height.
+	 */
+	public int height(int rank) {
+		return thin ? barHeight() : depth[rank] + height;
+	}
+
+	/**
+	 * Returns the height of the oval faces of a disk.
+	 *
+	 * @param rank the rank of the disk.
+	 * @return the disk depth, 0 for flat bars.
+	 */
+	public int depth(int rank) {
+		return depth[rank];
+	}
+
+	/**
+	 * Flat bars keep a one pixel gap between them once they are thick enough.
+	 */
+	private int barHeight() {
+		return height > 3 ? height - 1 : height;
+	}
+}
@@ -0,0 +1,194 @@
+/**
+ * DistanceTracker keeps the number of moves left to an optimal finish while
+ * a game is played, without searching. On three pegs it keeps the terms of
+ * {@link HanoiSolver#distance}: going from the largest disk down, the peg
+ * each disk must reach and the moves owed by the larger disks. Moving a
+ * disk cannot change the terms of the larger ones, so only the moved disk
+ * and the smaller ones are recomputed, which costs one step on average
+ * along an optimal game, and never allocates.
+ * <p>
+ * With more pegs the distance is only known while every disk is on one peg,
+ * from {@link FrameStewartSolver}; it is unknown otherwise, unless a
+ * {@link FourPegTablebase} of the same disk count is given, which answers
+ * every classic four-peg board with one lookup. The same holds under the
+ * other rule variants, with the solver of the variant.
+ */
+public class DistanceTracker {
+	private final int goal;
+	private final FourPegTablebase tablebase; // Exact four-peg distances, or null.
+	private final byte[] target = new byte[HanoiEngine.MAX_DISKS]; // Peg each disk must reach, given the larger disks.
+	private final long[] owed = new long[HanoiEngine.MAX_DISKS]; // Moves owed by the disks larger than each one.
+	private HanoiEngine engine;
+	private long distance; // Moves left, unsigned.
+	private boolean known; // Whether a solver covers the board.
+	private long[] towerMoves; // Moves to carry a complete tower from each peg to the goal, unsigned.
+	private boolean exact; // Whether every board has a known distance: classic rules on three pegs.
+	private boolean tabled; // Whether the tablebase covers the board.
+
+	/**
+	 * Constructs a tracker.
+	 *
+	 * @param goal the peg the tower must end on.
+	 */
+	public DistanceTracker(int goal) {
+		this(goal, null);
+	}
+
+	/**
+	 * Constructs a tracker that looks up four-peg boards in a tablebase.
+	 *
+	 * @param goal the peg the tower must end on.
+	 * @param tablebase the tablebase, used for classic boards of four pegs
+	 *        and its disk count when the goal is its goal peg, or null.
+	 */
+	public DistanceTracker(int goal, FourPegTablebase tablebase) {
+		this.goal = goal;
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * Starts tracking a board.
+	 *
+	 * @param engine the board, read again after each move.
+	 * @param rules the rules the board is played under.
+	 */
+	public void reset(HanoiEngine engine, RuleVariant rules) {
+		this.engine = engine;
+		int n = engine.totalDisk();
+		exact = engine.pegCount() == 3 && rules == RuleVariant.CLASSIC;
+		tabled = tablebase != null && engine.pegCount() == FourPegTablebase.PEGS && goal == FourPegTablebase.GOAL_PEG
+				&& n == tablebase.totalDisk() && rules == RuleVariant.CLASSIC;
+		towerMoves = new long[engine.pegCount()];
+		for (int i = 0; i < towerMoves.length; i++) if (i != goal) towerMoves[i] = towerMoves(n, engine.pegCount(), rules, i, goal);
+		changed();
+	}
+
+	/**
+	 * Returns the length of the optimal solution moving a complete tower between two pegs.
+	 *
+	 * @param totalDisk the number of disks.
+	 * @param pegCount the number of pegs.
+	 * @param rules the rules, supporting that number of pegs.
+	 * @param from the peg holding the tower.
+	 * @param to the peg that should receive it.
+	 * @return the number of moves, to be read as an unsigned long.
+	 */
+	static long towerMoves(int totalDisk, int pegCount, RuleVariant rules, int from, int to) {
+		return pegCount == 3 ? rules.solver(totalDisk, from, to).totalMoves() : new FrameStewartSolver(totalDisk, pegCount).moveCount();
+	}
+
+	/**
+	 * Updates the distance after a single move.
+	 *
+	 * @param disk the moved disk.
+	 */
+	public void moved(int disk) {
+		if (exact) update(disk);
+		else if (tabled) lookUp();
+		else updateTower();
+	}
+
+	/**
+	 * Updates the distance after the board was set to another position, such
+	 * as a timeline jump.
+	 */
+	public void changed() {
+		if (tabled) {
+			lookUp();
+			return;
+		}
+		if (!exact) {
+			updateTower();
+			return;
+		}
+		int top = engine.totalDisk() - 1;
+		known = true;
+		if (top < 0) {
+			distance = 0;
+			return;
+		}
+		target[top] = (byte) goal;
+		owed[top] = 0;
+		update(top);
+	}
+
+	/**
+	 * Recomputes the terms of a disk and of the smaller ones.
+	 */
+	private void update(int disk) {
+		int t = target[disk];
+		long moves = owed[disk];
+		for (int d = disk; d >= 0; d--) {
+			target[d] = (byte) t;
+			owed[d] = moves;
+			int peg = engine.pegOf(d);
+			if (peg != t) {
+				moves += 1L << d;
+				t = 3 - peg - t;
+			}
+		}
+		distance = moves;
+	}
+
+	private void lookUp() {
+		int moves = tablebase.distance(engine);
+		known = moves >= 0;
+		distance = moves;
+	}
+
+	private void updateTower() {
+		known = false;
+		for (int i = 0; i < engine.pegCount(); i++) {
+			if (engine.height(i) == engine.totalDisk()) {
+				distance = towerMoves[i];
+				known = true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of moves left to an optimal finish.
+	 *
+	 * @return the distance, to be read as an unsigned long; meaningless unless {@link #isKnown()}.
+	 */
+	public long distance() {
+		return distance;
+	}
+
+	/**
+	 * Checks whether the distance of the current board is known.
+	 *
+	 * @return true for classic rules on three pegs or a board in the tablebase, or while every disk is on one peg.
+	 */
+	public boolean isKnown() {
+		return known;
+	}
+
+	/**
+	 * Returns a move bringing the board one step closer to an optimal finish,
+	 * when the tablebase covers it.
+	 *
+	 * @return the packed move, or {@link Moves#NONE} without a tablebase or at the goal.
+	 */
+	public int bestMove() {
+		return tabled ? tablebase.bestMove(engine) : Moves.NONE;
+	}
+
+	/**
+	 * Returns the efficiency of the game so far: the optimal length of the
+	 * game over the length it will have if it ends optimally from here.
+	 *
+	 * @param moves the moves played since the start board.
+	 * @param optimal the length of an optimal game from the start board, unsigned.
+	 * @return the ratio, 1 while every move was optimal, or NaN if the distance is unknown.
+	 */
+	public double efficiency(long moves, long optimal) {
+		if (!known) return Double.NaN;
+		double total = unsigned(distance) + moves;
+		return total == 0 ? 1 : unsigned(optimal) / total;
+	}
+
+	private static double unsigned(long value) {
+		return value >= 0 ? value : (value >>> 1) * 2.0 + (value & 1);
+	}
+}
@@ -0,0 +1,157 @@
+import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import javax.swing.Timer;
+
+/**
+ * DragPipeline coalesces the mouse events of a disk drag down to one board
+ * update per display frame. Drag events only record the latest position;
+ * a frame timer then moves the disk once and repaints the union of its old
+ * and new bounds plus the tower column under it, instead of the whole board.
+ * Counters of coalesced events and saved repaint area are kept per drag.
+ */
+public class DragPipeline {
+	private final BoardCanvas canvas;
+	private final Timer frameTimer; // Applies the pending position once per frame on the EDT.
+	private final Rectangle dirty = new Rectangle(); // Area repainted by the current frame.
+	private Disk disk; // The disk being dragged, or null between drags.
+	private Tower[] towers; // Towers whose column may need a repaint.
+	private int pendingX, pendingY; // Latest position requested by a drag event.
+	private boolean pending; // Whether a position is waiting for the next frame.
+	private long events, frames, repaintedArea, fullArea; // Statistics of the current drag.
+	private GameEvents.DiskDrag dragEvent; // Flight recorder event of the current drag.
+
+	/**
+	 * Constructs a pipeline repainting the given canvas at the display refresh rate.
+	 *
+	 * @param canvas the canvas the dragged disks are drawn on.
+	 */
+	public DragPipeline(BoardCanvas canvas) {
+		this.canvas = canvas;
+		this.frameTimer = new Timer(frameInterval(), _ -> flush());
+		this.frameTimer.setCoalesce(true);
+	}
+
+	/**
+	 * Starts a drag, resetting the statistics.
+	 *
+	 * @param disk the disk being dragged.
+	 * @param towers the towers of the board.
+	 */
+	public void start(Disk disk, Tower[] towers) {
+		this.disk = disk;
+		this.towers = towers;
+		this.pending = false;
+		this.events = this.frames = this.repaintedArea = this.fullArea = 0;
+		dragEvent = new GameEvents.DiskDrag();
+		dragEvent.begin();
+		frameTimer.start();
+	}
+
+	/**
+	 * Records the position requested by a drag event, to be applied on the next frame.
+	 *
+	 * @param x the new x-coordinate of the disk.
+	 * @param y the new y-coordinate of the disk.
+	 */
+	public void post(int x, int y) {
+		if (disk == null) return;
+		pendingX = x;
+		pendingY = y;
+		pending = true;
+		events++;
+	}
+
+	/**
+	 * Applies the pending position, if any, and repaints only the affected area.
+	 */
+	public void flush() {
+		if (disk == null || !pending) return;
+		pending = false;
+		frames++;
+
+		Rectangle old = disk.getBounds();
+		Dimension size = disk.getPreferredSize();
+		disk.setBounds(pendingX, pendingY, size.width, size.height);
+		dirty.setBounds(old);
+		dirty.add(disk.getBounds());
+		int centerX = pendingX + size.width / 2;
+		for (Tower tower : towers) {
+			Rectangle column = tower.getBounds();
+			if (column.x <= centerX && centerX <= column.x + column.width) dirty.add(column);
+		}
+
+		repaintedArea += (long) dirty.width * dirty.height;
+		fullArea += (long) canvas.getWidth() * canvas.getHeight();
+		canvas.repaint(dirty);
+	}
+
+	/**
+	 * Ends the drag, applying the last pending position.
+	 */
+	public void stop() {
+		if (disk == null) return;
+		flush();
+		frameTimer.stop();
+		dragEvent.disk = disk.rank();
+		dragEvent.events = events;
+		dragEvent.frames = frames;
+		dragEvent.savedArea = savedAreaRatio();
+		dragEvent.commit();
+		dragEvent = null;
+		disk = null;
+		towers = null;
+		if (Boolean.getBoolean("hanoi.debug")) System.out.println(report());
+	}
+
+	/**
+	 * Returns the number of drag events received since the drag started.
+	 *
+	 * @return the event count.
+	 */
+	public long events() {
+		return events;
+	}
+
+	/**
+	 * Returns the number of drag events merged into a later frame.
+	 *
+	 * @return the coalesced event count.
+	 */
+	public long coalescedEvents() {
+		return events - frames;
+	}
+
+	/**
+	 * Returns the share of the board area that full repaints would have redrawn but this drag did not.
+	 *
+	 * @return the saved area, from 0 to 1.
+	 */
+	public double savedAreaRatio() {
+		return fullArea == 0 ? 0 : 1 - (double) repaintedArea / fullArea;
+	}
+
+	/**
+	 * Summarizes the statistics of the last drag.
+	 *
+	 * @return a one-line report.
+	 */
+	public String report() {
+		return String.format("drag: %d events, %d frames, %d coalesced, %.1f%% repaint area saved",
+				events, frames, coalescedEvents(), savedAreaRatio() * 100);
+	}
+
+	/**
+	 * Computes the frame period of the default screen, falling back to 60 Hz.
+	 *
+	 * @return the frame period in milliseconds.
+	 */
+	static int frameInterval() {
+		int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+		if (!GraphicsEnvironment.isHeadless()) {
+			refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+		}
+		return 1000 / (refreshRate > 0 ? refreshRate : 60);
+	}
+}
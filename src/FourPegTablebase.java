@@ -0,0 +1,270 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * FourPegTablebase stores the exact distance to the goal of every position
+ * of the four-peg puzzle in a memory-mapped file. A position is encoded as a
+ * base-4 long, two bits per disk holding its peg, which is also the index of
+ * its distance byte in the file. Lookups therefore touch a single page, and
+ * the best next move is found by probing the few legal neighbours.
+ * <p>
+ * The table is built offline by a parallel breadth-first search going
+ * backwards from the goal. The mapped file doubles as the visited set: a
+ * byte holds the distance plus one, so zero means not reached yet and the
+ * file does not need to be initialised.
+ */
+public class FourPegTablebase implements Closeable {
+	public static final int PEGS = 4; // The tablebase only covers four pegs.
+	public static final int GOAL_PEG = PEGS - 1; // Peg holding the complete tower at the goal.
+	public static final int MAX_DISKS = 16; // Distances fit a byte: 17 disks already need 193 moves, 19 need 257.
+	private static final int MAGIC = 0x484E5442; // "HNTB"
+	private static final int VERSION = 1;
+	private static final int HEADER = 64; // Bytes before the distance table.
+	private static final int SEGMENT_BITS = 30; // Mapped segments of 1 GiB.
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+	private static final int CHUNK_BITS = 16; // Positions scanned per BFS work item.
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final int totalDisk;
+
+	private FourPegTablebase(FileChannel channel, FileChannel.MapMode mode, int totalDisk) throws IOException {
+		this.channel = channel;
+		this.totalDisk = totalDisk;
+		long size = positionCount(totalDisk);
+		this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+		for (int i = 0; i < segments.length; i++) {
+			long start = (long) i << SEGMENT_BITS;
+			segments[i] = channel.map(mode, HEADER + start, Math.min(SEGMENT_MASK + 1, size - start));
+		}
+	}
+
+	/**
+	 * Builds the tablebase of the given disk count into a file, replacing any previous content.
+	 *
+	 * @param file The file receiving the table.
+	 * @param totalDisk The number of disks, up to {@link #MAX_DISKS}; 16 disks take a 4 GiB file.
+	 * @return The opened tablebase.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static FourPegTablebase build(Path file, int totalDisk) throws IOException {
+		if (totalDisk < 1 || totalDisk > MAX_DISKS)
+			throw new IllegalArgumentException("Unsupported disk count: " + totalDisk);
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		header.putInt(MAGIC).putInt(VERSION).putInt(totalDisk).putInt(PEGS).putInt(GOAL_PEG).rewind();
+		channel.write(header, 0);
+
+		FourPegTablebase table = new FourPegTablebase(channel, FileChannel.MapMode.READ_WRITE, totalDisk);
+		table.search();
+		for (MappedByteBuffer segment : table.segments) segment.force();
+		return table;
+	}
+
+	/**
+	 * Opens a previously built tablebase for lookups.
+	 *
+	 * @param file The file holding the table.
+	 * @return The opened tablebase.
+	 * @throws IOException if the file cannot be read or is not a tablebase.
+	 */
+	public static FourPegTablebase open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		channel.read(header, 0);
+		header.flip();
+		if (header.remaining() < 20 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+			channel.close();
+			throw new IOException("Not a tablebase: " + file);
+		}
+		int totalDisk = header.getInt();
+		if (header.getInt() != PEGS || header.getInt() != GOAL_PEG || channel.size() < HEADER + positionCount(totalDisk)) {
+			channel.close();
+			throw new IOException("Unsupported tablebase: " + file);
+		}
+		return new FourPegTablebase(channel, FileChannel.MapMode.READ_ONLY, totalDisk);
+	}
+
+	/**
+	 * Encodes the board of a four-peg engine as a base-4 position.
+	 *
+	 * @param engine The engine holding the board.
+	 * @return The position, two bits per disk.
+	 */
+	public static long encode(HanoiEngine engine) {
+		if (engine.pegCount() != PEGS)
+			throw new IllegalArgumentException("Tablebase needs " + PEGS + " pegs, got " + engine.pegCount());
+		long position = 0;
+		for (int peg = 1; peg < PEGS; peg++) {
+			for (long disks = engine.peg(peg); disks != 0; disks &= disks - 1) {
+				position |= (long) peg << (2 * Long.numberOfTrailingZeros(disks));
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the exact number of moves from a position to the goal.
+	 *
+	 * @param position The base-4 position.
+	 * @return The optimal distance, or -1 if the position was not reached.
+	 */
+	public int distance(long position) {
+		return (get(position) & 0xFF) - 1;
+	}
+
+	/**
+	 * Returns the exact number of moves from the board of an engine to the goal.
+	 *
+	 * @param engine The engine holding the board.
+	 * @return The optimal distance, or -1 if the position was not reached.
+	 */
+	public int distance(HanoiEngine engine) {
+		checkDisks(engine);
+		return distance(encode(engine));
+	}
+
+	/**
+	 * Returns a move that brings the board of an engine one step closer to the goal.
+	 *
+	 * @param engine The engine holding the board.
+	 * @return The packed move, or {@link Moves#NONE} at the goal.
+	 */
+	public int bestMove(HanoiEngine engine) {
+		checkDisks(engine);
+		long position = encode(engine);
+		int distance = distance(position);
+		if (distance <= 0) return Moves.NONE;
+
+		int[] top = new int[PEGS];
+		topDisks(position, top);
+		for (int from = 0; from < PEGS; from++) {
+			if (top[from] < 0) continue;
+			for (int to = 0; to < PEGS; to++) {
+				if (to == from || (top[to] >= 0 && top[to] < top[from])) continue;
+				long next = position ^ ((long) (from ^ to) << (2 * top[from]));
+				if (distance(next) == distance - 1) return Moves.pack(top[from], from, to);
+			}
+		}
+		return Moves.NONE;
+	}
+
+	/**
+	 * Returns the number of disks covered by the table.
+	 *
+	 * @return The disk count.
+	 */
+	public int totalDisk() {
+		return totalDisk;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Runs the level-synchronous breadth-first search from the goal. Each
+	 * level scans, in parallel, only the chunks that received a position at
+	 * the previous level, and marks the chunks its new positions fall into.
+	 */
+	private void search() {
+		long size = positionCount(totalDisk);
+		int chunks = (int) Math.max(1, size >>> CHUNK_BITS);
+		long chunkSize = size / chunks;
+		boolean[] frontier = new boolean[chunks];
+		long goal = size - 1;
+		put(goal, (byte) 1);
+		frontier[(int) (goal / chunkSize)] = true;
+
+		for (int level = 1; ; level++) {
+			if (level == 255) throw new IllegalStateException("Distances exceed one byte");
+			final byte current = (byte) level, next = (byte) (level + 1);
+			final boolean[] scan = frontier;
+			final boolean[] marked = new boolean[chunks];
+			long found = IntStream.range(0, chunks).parallel().filter(c -> scan[c]).mapToLong(c -> {
+				int[] top = new int[PEGS];
+				long reached = 0;
+				for (long position = c * chunkSize, end = position + chunkSize; position < end; position++) {
+					if (get(position) != current) continue;
+					topDisks(position, top);
+					for (int from = 0; from < PEGS; from++) {
+						if (top[from] < 0) continue;
+						for (int to = 0; to < PEGS; to++) {
+							if (to == from || (top[to] >= 0 && top[to] < top[from])) continue;
+							long neighbour = position ^ ((long) (from ^ to) << (2 * top[from]));
+							if (get(neighbour) != 0) continue;
+							put(neighbour, next);
+							marked[(int) (neighbour / chunkSize)] = true;
+							reached++;
+						}
+					}
+				}
+				return reached;
+			}).sum();
+			if (found == 0) return;
+			frontier = marked;
+		}
+	}
+
+	/**
+	 * Finds the top disk of every peg of a position.
+	 *
+	 * @param position The base-4 position.
+	 * @param top The array receiving the top disk of each peg, or -1 when empty.
+	 */
+	private void topDisks(long position, int[] top) {
+		for (int i = 0; i < PEGS; i++) top[i] = -1;
+		int missing = PEGS;
+		for (int disk = 0; disk < totalDisk && missing > 0; disk++) {
+			int peg = (int) (position >>> (2 * disk)) & 3;
+			if (top[peg] < 0) {
+				top[peg] = disk;
+				missing--;
+			}
+		}
+	}
+
+	private void checkDisks(HanoiEngine engine) {
+		if (engine.totalDisk() != totalDisk)
+			throw new IllegalArgumentException("Tablebase covers " + totalDisk + " disks, got " + engine.totalDisk());
+	}
+
+	private byte get(long position) {
+		return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+	}
+
+	private void put(long position, byte value) {
+		segments[(int) (position >>> SEGMENT_BITS)].put((int) (position & SEGMENT_MASK), value);
+	}
+
+	private static long positionCount(int totalDisk) {
+		return 1L << (2 * totalDisk);
+	}
+
+	/**
+	 * Builds a tablebase from the command line.
+	 *
+	 * @param args the output file and the number of disks
+	 * @throws Exception if the table cannot be built
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 2) {
+			System.err.println("usage: FourPegTablebase <file> <disks>");
+			System.exit(2);
+		}
+		long start = System.nanoTime();
+		try (FourPegTablebase table = build(Path.of(args[0]), Integer.parseInt(args[1]))) {
+			HanoiEngine engine = new HanoiEngine(PEGS);
+			engine.reset(table.totalDisk(), 0);
+			System.out.printf("built %d disks in %.1f s, start distance %d%n",
+					table.totalDisk(), (System.nanoTime() - start) / 1e9, table.distance(engine));
+		}
+	}
+}
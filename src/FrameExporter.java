@@ -0,0 +1,311 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import javax.imageio.ImageIO;
+
+/**
+ * FrameExporter renders a solve, optimal or replayed, to a video frame
+ * sequence without a display. It is a third entry point next to
+ * {@link App} and {@link BatchCli}:
+ * <pre>
+ * FrameExporter [--disks N] [--pegs P] [--rules R] [--replay &lt;archive&gt; [--game G]]
+ *               [--fps F] [--rate M] [--size WxH] [--threads T] [--format png|raw] &lt;output&gt;
+ * </pre>
+ * Without {@code --replay} the optimal solution of N disks (7 by default)
+ * is played, under the classic rules or the {@link RuleVariant} named R.
+ * Frames are taken F times per second (30 by default) of a solve playing
+ * M moves per second (F by default, one move per frame).
+ * {@code png} writes {@code frame_000000.png} and onwards into the output
+ * directory; {@code raw} writes packed 8-bit RGB frames to the output file,
+ * or to the standard output for {@code -}, ready for
+ * {@code ffmpeg -f rawvideo -pix_fmt rgb24 -s WxH -r F -i -}.
+ * <p>
+ * The main thread plays the moves and hands a copy of the board of each
+ * frame to a pool of workers, one per core by default. A worker keeps its
+ * own board, disks, towers, canvas and image, paints the frame with the
+ * code of the game screen, and encodes it. The main thread then writes
+ * the encoded frames in order. At most two frames per worker are in flight,
+ * so memory stays flat however long the export is.
+ */
+public class FrameExporter {
+	static final Color BACKGROUND = new Color(215, 196, 183); // As on the game screens.
+	private final Dimension size;
+	private final int pegCount, totalDisk;
+	private final boolean raw;
+	private final RuleVariant rules; // Rules of the solve, which choose the disk colors.
+	private final BoardLayout layout; // Shared by the workers; immutable.
+	private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+	private final int window; // Frames in flight at most.
+	private final BlockingQueue<byte[]> rawBuffers; // Recycled frames of the raw format.
+
+	/**
+	 * Constructs an exporter of boards of a given size.
+	 *
+	 * @param size the size of the frames.
+	 * @param pegCount the number of pegs.
+	 * @param totalDisk the number of disks.
+	 * @param raw true for packed RGB frames, false for PNG images.
+	 * @param rules the rules of the solve.
+	 * @param window the number of frames in flight.
+	 */
+	FrameExporter(Dimension size, int pegCount, int totalDisk, boolean raw, RuleVariant rules, int window) {
+		this.size = size;
+		this.pegCount = pegCount;
+		this.totalDisk = totalDisk;
+		this.raw = raw;
+		this.rules = rules;
+		this.layout = new BoardLayout(size, pegCount, totalDisk);
+		this.window = window;
+		this.rawBuffers = new ArrayBlockingQueue<>(window + 1);
+	}
+
+	/**
+	 * A solve played move by move on its own board.
+	 *
+	 * @param board the board, set to the start position.
+	 * @param moveCount the number of moves of the solve.
+	 * @param next plays the next move, returning false at the end.
+	 */
+	record Playback(HanoiEngine board, long moveCount, BooleanSupplier next) {
+	}
+
+	/**
+	 * Runs an export from the command line.
+	 *
+	 * @param args see the class description.
+	 * @throws Exception if the replay cannot be read or the frames written
+	 */
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		int disks = 7, pegs = 3, game = 0, fps = 30, threads = Runtime.getRuntime().availableProcessors();
+		double rate = -1;
+		Dimension size = new Dimension(1920, 1080);
+		RuleVariant rules = RuleVariant.CLASSIC;
+		String format = "png", output = null;
+		Path replayFile = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--disks" -> disks = Integer.parseInt(args[++i]);
+				case "--pegs" -> pegs = Integer.parseInt(args[++i]);
+				case "--rules" -> rules = RuleVariant.named(args[++i]);
+				case "--replay" -> replayFile = Path.of(args[++i]);
+				case "--game" -> game = Integer.parseInt(args[++i]);
+				case "--fps" -> fps = Integer.parseInt(args[++i]);
+				case "--rate" -> rate = Double.parseDouble(args[++i]);
+				case "--threads" -> threads = Integer.parseInt(args[++i]);
+				case "--format" -> format = args[++i];
+				case "--size" -> {
+					String[] wh = args[++i].split("x");
+					size = new Dimension(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]));
+				}
+				default -> output = args[i];
+			}
+		}
+		if (output == null || fps < 1 || threads < 1 || !(format.equals("png") || format.equals("raw")) || !rules.supports(pegs)) {
+			System.err.println("usage: FrameExporter [--disks N] [--pegs P] [--rules R] [--replay <archive> [--game G]] [--fps F] [--rate M]"
+					+ " [--size WxH] [--threads T] [--format png|raw] <output>");
+			System.exit(2);
+		}
+
+		ReplayArchive archive = replayFile == null ? null : ReplayArchive.open(replayFile);
+		Playback playback = archive != null ? replay(archive.replay(game)) : optimal(disks, pegs, rules);
+		FrameExporter exporter = new FrameExporter(size, playback.board().pegCount(), playback.board().totalDisk(), format.equals("raw"), rules, threads * 2);
+
+		long start = System.nanoTime();
+		long frames;
+		if (format.equals("raw")) {
+			try (OutputStream out = new BufferedOutputStream(output.equals("-") ? System.out : Files.newOutputStream(Path.of(output)), 1 << 20)) {
+				frames = exporter.export(playback, fps, rate > 0 ? rate : fps, threads, (_, frame) -> out.write(frame));
+			}
+		} else {
+			Path dir = Files.createDirectories(Path.of(output));
+			frames = exporter.export(playback, fps, rate > 0 ? rate : fps, threads,
+					(k, frame) -> Files.write(dir.resolve(String.format("frame_%06d.png", k)), frame));
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf("%d frames of %dx%d in %.1f s on %d threads: %.0f frames/s%n", frames, size.width, size.height, seconds, threads, frames / seconds);
+		if (archive != null) archive.close();
+	}
+
+	/**
+	 * Receives the encoded frames, in order, on the thread that runs the export.
+	 */
+	interface FrameSink {
+		/**
+		 * Writes one frame.
+		 *
+		 * @param index the frame number, from 0.
+		 * @param frame the encoded frame; it may be reused once the call returns.
+		 * @throws IOException if the frame cannot be written.
+		 */
+		void write(long index, byte[] frame) throws IOException;
+	}
+
+	/**
+	 * Plays a solve and renders its frames.
+	 *
+	 * @param playback the solve.
+	 * @param fps the frames per second of the video.
+	 * @param rate the moves per second of the solve.
+	 * @param threads the number of rendering workers.
+	 * @param sink receives the encoded frames in order.
+	 * @return the number of frames written.
+	 * @throws IOException if a frame cannot be rendered or written.
+	 */
+	long export(Playback playback, int fps, double rate, int threads, FrameSink sink) throws IOException {
+		HanoiEngine board = playback.board();
+		long total = playback.moveCount();
+		long frames = (long) Math.ceil(total * fps / rate) + 1;
+		ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>(window);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			long played = 0;
+			for (long k = 0; k < frames; k++) {
+				long due = Math.min(total, (long) (k * rate / fps));
+				while (played < due && playback.next().getAsBoolean()) played++;
+				long[] pegs = new long[pegCount];
+				board.copyPegs(pegs);
+				inFlight.add(pool.submit(() -> workers.get().render(pegs)));
+				if (inFlight.size() == window) write(inFlight.poll(), k - window + 1, sink);
+			}
+			for (long k = frames - inFlight.size(); !inFlight.isEmpty(); k++) write(inFlight.poll(), k, sink);
+		} finally {
+			pool.shutdownNow();
+		}
+		return frames;
+	}
+
+	private void write(Future<byte[]> frame, long index, FrameSink sink) throws IOException {
+		byte[] bytes;
+		try {
+			bytes = frame.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Export interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Frame " + index + " failed", e.getCause());
+		}
+		sink.write(index, bytes);
+		if (raw) rawBuffers.offer(bytes);
+	}
+
+	/**
+	 * Returns the optimal solution of a complete tower, moved from the first peg to the last one.
+	 *
+	 * @param totalDisk the number of disks.
+	 * @param pegCount the number of pegs.
+	 * @param rules the rules, supporting that number of pegs.
+	 * @return the solve.
+	 */
+	static Playback optimal(int totalDisk, int pegCount, RuleVariant rules) {
+		HanoiEngine board = new HanoiEngine(pegCount);
+		board.reset(totalDisk, 0);
+		if (pegCount == 3) {
+			RuleVariant.Solver solver = rules.solver(totalDisk, 0, 2);
+			return new Playback(board, solver.totalMoves(), () -> {
+				if (!solver.hasNext()) return false;
+				int move = solver.next();
+				return board.move(Moves.from(move), Moves.to(move));
+			});
+		}
+		int[] solution = new FrameStewartSolver(totalDisk, pegCount).solve();
+		int[] next = {0};
+		return new Playback(board, solution.length, () -> next[0] < solution.length
+				&& board.move(Moves.from(solution[next[0]]), Moves.to(solution[next[0]++])));
+	}
+
+	/**
+	 * Returns a recorded game, timeline jumps included.
+	 *
+	 * @param replay the game, at its first move.
+	 * @return the solve.
+	 */
+	static Playback replay(ReplayArchive.Replay replay) {
+		return new Playback(replay.board(), replay.moveCount(), () -> replay.next() != Moves.NONE);
+	}
+
+	/**
+	 * Worker holds what one rendering thread draws with: a board of its own
+	 * and the image it paints into, reused for every frame.
+	 */
+	private final class Worker {
+		private final HanoiEngine engine = new HanoiEngine(pegCount);
+		private final Tower[] towers = new Tower[pegCount];
+		private final List<Disk> disks = new ArrayList<>(); // From the largest to the smallest, as in MyGraphics.
+		private final BoardCanvas canvas;
+		private final BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+		private final ByteArrayOutputStream png = new ByteArrayOutputStream();
+
+		Worker() {
+			SpriteCache spriteCache = new SpriteCache();
+			spriteCache.validate(totalDisk, size);
+			DiskRenderer diskRenderer = new DiskRenderer(layout, spriteCache, rules);
+			for (int i = 0; i < pegCount; i++) {
+				towers[i] = new Tower(Tower.WOOD, BoardLayout.TOWER_DIAMETER, layout.towerHeight(), layout.towerX(i), layout.towerY(), i, null);
+			}
+			for (int rank = totalDisk - 1; rank >= 0; rank--) disks.add(new Disk(rank, diskRenderer, null));
+			canvas = new BoardCanvas(spriteCache);
+			canvas.setBoard(towers, disks, diskRenderer);
+			canvas.setSize(size);
+			engine.reset(totalDisk, 0);
+		}
+
+		/**
+		 * Paints a board and encodes it.
+		 *
+		 * @param pegs one bitmask per peg.
+		 * @return the encoded frame.
+		 */
+		byte[] render(long[] pegs) throws IOException {
+			engine.setPegs(pegs);
+			for (Disk disk : disks) disk.relocateDisk(layout, engine);
+			for (int i = 0; i < pegCount; i++) {
+				int top = engine.topDisk(i);
+				towers[i].topDisk(top == -1 ? null : disks.get(totalDisk - 1 - top));
+			}
+			Graphics2D g = image.createGraphics();
+			g.setColor(BACKGROUND);
+			g.fillRect(0, 0, size.width, size.height);
+			canvas.paint(g);
+			g.dispose();
+			return raw ? rgb() : png();
+		}
+
+		private byte[] png() throws IOException {
+			png.reset();
+			ImageIO.write(image, "png", png);
+			return png.toByteArray();
+		}
+
+		private byte[] rgb() {
+			int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			byte[] frame = rawBuffers.poll();
+			if (frame == null) frame = new byte[pixels.length * 3];
+			for (int i = 0, j = 0; i < pixels.length; i++) {
+				int p = pixels[i];
+				frame[j++] = (byte) (p >> 16);
+				frame[j++] = (byte) (p >> 8);
+				frame[j++] = (byte) p;
+			}
+			return frame;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * FrameStewartSolver solves the puzzle on four or more pegs. It moves the
+ * top k disks aside using every peg, moves the remaining disks with one peg
+ * less, then brings the k disks back on top. The best split point of every
+ * (disks, pegs) pair is computed once in a memoized table, and the three
+ * sub-towers of each split are expanded in parallel with fork/join since
+ * their positions in the final move list are known in advance.
+ */
+public class FrameStewartSolver {
+	private static final int SEQUENTIAL_MOVES = 1 << 12; // Sub-towers below this size are expanded inline.
+	private final int totalDisk; // Number of disks of the tower.
+	private final int pegCount; // Number of pegs of the board.
+	private final long[][] moves; // Minimal number of moves for each (disks, pegs) pair.
+	private final int[][] split; // Number of disks moved aside for each (disks, pegs) pair.
+
+	/**
+	 * Constructs a solver and fills its split table.
+	 *
+	 * @param totalDisk The number of disks of the tower.
+	 * @param pegCount The number of pegs of the board, at least 3.
+	 */
+	public FrameStewartSolver(int totalDisk, int pegCount) {
+		if (totalDisk < 0 || totalDisk > HanoiEngine.MAX_DISKS)
+			throw new IllegalArgumentException("Unsupported disk count: " + totalDisk);
+		if (pegCount < 3 || pegCount > HanoiEngine.MAX_PEGS)
+			throw new IllegalArgumentException("Unsupported peg count: " + pegCount);
+		this.totalDisk = totalDisk;
+		this.pegCount = pegCount;
+		this.moves = new long[totalDisk + 1][pegCount + 1];
+		this.split = new int[totalDisk + 1][pegCount + 1];
+
+		for (int n = 1; n <= totalDisk; n++) {
+			moves[n][3] = n >= 63 ? Long.MAX_VALUE : (1L << n) - 1;
+			split[n][3] = n - 1;
+		}
+		for (int p = 4; p <= pegCount; p++) {
+			for (int n = 1; n <= totalDisk; n++) {
+				long best = Long.MAX_VALUE;
+				int bestSplit = 0;
+				for (int k = n - 1; k >= 1; k--) {
+					long cost = saturatedAdd(saturatedAdd(moves[k][p], moves[k][p]), moves[n - k][p - 1]);
+					if (cost < best) {
+						best = cost;
+						bestSplit = k;
+					}
+				}
+				moves[n][p] = n == 1 ? 1 : best;
+				split[n][p] = bestSplit;
+			}
+		}
+	}
+
+	/**
+	 * Returns the Frame-Stewart number of a sub-problem.
+	 *
+	 * @param disks The number of disks, at most the solver's disk count.
+	 * @param pegs The number of pegs, from 3 to the solver's peg count.
+	 * @return The number of moves, saturated at {@link Long#MAX_VALUE}.
+	 */
+	public long moveCount(int disks, int pegs) {
+		return moves[disks][pegs];
+	}
+
+	/**
+	 * Returns the number of moves needed to solve the whole tower.
+	 *
+	 * @return The number of moves, saturated at {@link Long#MAX_VALUE}.
+	 */
+	public long moveCount() {
+		return moves[totalDisk][pegCount];
+	}
+
+	/**
+	 * Returns the number of disks moved aside first for a sub-problem.
+	 *
+	 * @param disks The number of disks.
+	 * @param pegs The number of pegs.
+	 * @return The split point.
+	 */
+	public int split(int disks, int pegs) {
+		return split[disks][pegs];
+	}
+
+	/**
+	 * Generates the whole solution from the first peg to the last one on the common pool.
+	 *
+	 * @return The packed moves, in order.
+	 */
+	public int[] solve() {
+		return solve(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Generates the whole solution from the first peg to the last one.
+	 *
+	 * @param pool The pool expanding the sub-towers.
+	 * @return The packed moves, in order.
+	 */
+	public int[] solve(ForkJoinPool pool) {
+		long total = moveCount();
+		if (total > Integer.MAX_VALUE - 8)
+			throw new IllegalStateException("Solution too long to materialize: " + total + " moves");
+		int[] out = new int[(int) total];
+		int allPegs = (1 << pegCount) - 1;
+		pool.invoke(new Expand(out, 0, totalDisk, 0, pegCount - 1, allPegs, 0));
+		return out;
+	}
+
+	private static long saturatedAdd(long a, long b) {
+		long sum = a + b;
+		return sum < 0 ? Long.MAX_VALUE : sum;
+	}
+
+	/**
+	 * Writes the moves of one sub-tower into its slice of the output.
+	 */
+	private final class Expand extends RecursiveAction {
+		private final int[] out; // Shared output, each task writing its own slice.
+		private final int base; // Smallest disk of the sub-tower.
+		private final int count; // Number of disks of the sub-tower.
+		private final int from; // Peg holding the sub-tower.
+		private final int to; // Peg receiving the sub-tower.
+		private final int pegMask; // Pegs the sub-tower may use.
+		private final int offset; // Index of the first move in the output.
+
+		Expand(int[] out, int base, int count, int from, int to, int pegMask, int offset) {
+			this.out = out;
+			this.base = base;
+			this.count = count;
+			this.from = from;
+			this.to = to;
+			this.pegMask = pegMask;
+			this.offset = offset;
+		}
+
+		@Override
+		protected void compute() {
+			if (count == 0) return;
+			if (count == 1) {
+				out[offset] = Moves.pack(base, from, to);
+				return;
+			}
+			int pegs = Integer.bitCount(pegMask);
+			if (pegs == 3 && moves[count][pegs] < SEQUENTIAL_MOVES) {
+				expandThreePegs();
+				return;
+			}
+
+			int k = split[count][pegs];
+			int spare = Integer.numberOfTrailingZeros(pegMask & ~(1 << from | 1 << to));
+			int middle = offset + (int) moves[k][pegs];
+			int last = offset + (int) (moves[count][pegs] - moves[k][pegs]);
+
+			Expand aside = new Expand(out, base, k, from, spare, pegMask, offset);
+			Expand bottom = new Expand(out, base + k, count - k, from, to, pegMask & ~(1 << spare), middle);
+			Expand back = new Expand(out, base, k, spare, to, pegMask, last);
+			if (moves[count][pegs] < SEQUENTIAL_MOVES) {
+				aside.compute();
+				bottom.compute();
+				back.compute();
+			} else {
+				invokeAll(aside, bottom, back);
+			}
+		}
+
+		private void expandThreePegs() {
+			int aux = Integer.numberOfTrailingZeros(pegMask & ~(1 << from | 1 << to));
+			int[] label = {from, aux, to};
+			HanoiSolver solver = new HanoiSolver(count, 0, 2);
+			for (int i = offset; solver.hasNext(); i++) {
+				int move = solver.next();
+				out[i] = Moves.pack(base + Moves.disk(move), label[Moves.from(move)], label[Moves.to(move)]);
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * GameClock measures the play time of a game with {@link System#nanoTime},
+ * so the total never drifts when the event dispatch thread stalls: the
+ * elapsed time is always read from the monotonic clock, never counted.
+ */
+public class GameClock {
+	private long startNanos; // Clock reading when the clock was last started.
+	private long accumulatedNanos; // Time elapsed before the clock was last started.
+	private boolean running;
+
+	/**
+	 * Starts the clock, keeping the time already elapsed.
+	 */
+	public void start() {
+		if (running) return;
+		startNanos = System.nanoTime();
+		running = true;
+	}
+
+	/**
+	 * Stops the clock, keeping the time elapsed so far.
+	 */
+	public void stop() {
+		if (!running) return;
+		accumulatedNanos += System.nanoTime() - startNanos;
+		running = false;
+	}
+
+	/**
+	 * Stops the clock and sets the elapsed time, for instance when resuming a saved game.
+	 *
+	 * @param elapsedNanos the time already played, in nanoseconds.
+	 */
+	public void reset(long elapsedNanos) {
+		running = false;
+		accumulatedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the time played so far.
+	 *
+	 * @return the elapsed time in nanoseconds.
+	 */
+	public long elapsedNanos() {
+		return running ? accumulatedNanos + System.nanoTime() - startNanos : accumulatedNanos;
+	}
+
+	/**
+	 * Returns the time played so far.
+	 *
+	 * @return the elapsed time in milliseconds.
+	 */
+	public long elapsedMillis() {
+		return elapsedNanos() / 1_000_000;
+	}
+
+	/**
+	 * Checks whether the clock is running.
+	 *
+	 * @return true if the clock is running, false otherwise.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Formats a duration as minutes and seconds, optionally with milliseconds.
+	 *
+	 * @param millis the duration in milliseconds.
+	 * @param withMillis whether to append the milliseconds.
+	 * @return the text {@code mm:ss} or {@code mm:ss.mmm}.
+	 */
+	public static String format(long millis, boolean withMillis) {
+		long minutes = millis / 60_000;
+		int seconds = (int) (millis / 1000 % 60);
+		StringBuilder sb = new StringBuilder(12);
+		if (minutes < 10) sb.append('0');
+		sb.append(minutes).append(':');
+		if (seconds < 10) sb.append('0');
+		sb.append(seconds);
+		if (withMillis) {
+			int ms = (int) (millis % 1000);
+			sb.append('.');
+			if (ms < 100) sb.append('0');
+			if (ms < 10) sb.append('0');
+			sb.append(ms);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,130 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * GameEvents holds the JDK Flight Recorder events of the game. They cover
+ * the input handlers, committed moves, screen changes and the paint passes
+ * of the board and the buttons, so that a recording of a janky session
+ * shows which handler or paint took the time on the event dispatch thread.
+ * Events are created around the measured code:
+ * <pre>
+ * GameEvents.Paint event = new GameEvents.Paint();
+ * event.begin();
+ * ...
+ * event.commit();
+ * </pre>
+ * While no recording is running the JIT removes them, so they cost nothing.
+ * A recording is started with {@code -XX:StartFlightRecording} or
+ * {@code jcmd <pid> JFR.start}, and the events are listed under the Hanoi
+ * category.
+ */
+public final class GameEvents {
+	private GameEvents() {
+	}
+
+	@Name("hanoi.DiskPress")
+	@Label("Disk Press")
+	@Category({"Hanoi", "Input"})
+	@Description("Handling of a mouse press on the board")
+	static final class DiskPress extends Event {
+		@Label("Disk")
+		int disk = -1; // Rank of the pressed disk, or -1 if no disk was picked up.
+		@Label("Peg")
+		int peg = -1;
+	}
+
+	@Name("hanoi.DiskDrag")
+	@Label("Disk Drag")
+	@Category({"Hanoi", "Input"})
+	@Description("A disk drag, from the press to the drop")
+	static final class DiskDrag extends Event {
+		@Label("Disk")
+		int disk;
+		@Label("Mouse Events")
+		long events;
+		@Label("Frames")
+		long frames;
+		@Label("Saved Repaint Area")
+		@Description("Share of the board that full repaints would have redrawn but the drag did not")
+		double savedArea;
+	}
+
+	@Name("hanoi.DiskDrop")
+	@Label("Disk Drop")
+	@Category({"Hanoi", "Input"})
+	@Description("Handling of a mouse release ending a drag")
+	static final class DiskDrop extends Event {
+		@Label("Disk")
+		int disk;
+		@Label("From Peg")
+		int from;
+		@Label("To Peg")
+		@Description("The peg the disk was dropped on, or -1 outside the pegs")
+		int to;
+		@Label("Legal")
+		boolean legal;
+	}
+
+	@Name("hanoi.Move")
+	@Label("Move")
+	@Category({"Hanoi", "Game"})
+	@Description("A move committed to the board by the mouse, the keyboard, an undo or a redo")
+	static final class Move extends Event {
+		@Label("Disk")
+		int disk;
+		@Label("From Peg")
+		int from;
+		@Label("To Peg")
+		int to;
+		@Label("Move Count")
+		int moveCount;
+		@Label("Source")
+		String source;
+		@Label("Queue Wait")
+		@Description("Time a keyboard move waited for the frame that plays it")
+		@Timespan
+		long queueWait;
+	}
+
+	@Name("hanoi.RepaintScreen")
+	@Label("Repaint Screen")
+	@Category({"Hanoi", "Paint"})
+	@Description("Reordering the board display list and requesting its repaint")
+	static final class RepaintScreen extends Event {
+		@Label("Lifted Disk")
+		@Description("Rank of the disk drawn above the board, or -1")
+		int liftedDisk;
+	}
+
+	@Name("hanoi.ScreenChange")
+	@Label("Screen Change")
+	@Category({"Hanoi", "Game"})
+	static final class ScreenChange extends Event {
+		@Label("From")
+		String from;
+		@Label("To")
+		String to;
+	}
+
+	@Name("hanoi.Paint")
+	@Label("Paint")
+	@Category({"Hanoi", "Paint"})
+	@Description("A paint pass of a component of the board or of a button")
+	static final class Paint extends Event {
+		@Label("Component")
+		@Description("Disk, Tower or RoundedBtn")
+		String component;
+		@Label("Index")
+		@Description("Peg of a tower or of the lifted disk, or -1")
+		int index = -1;
+		@Label("Items")
+		@Description("Disks in the display list of a disk pass")
+		int items;
+		@Label("Text")
+		String text;
+	}
+}
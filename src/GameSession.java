@@ -0,0 +1,178 @@
+/**
+ * GameSession holds the progress of one game that is not part of the board
+ * itself: the move count, the play clock, and the timing of every move.
+ * The think time of a move runs from the previous move (or the start of
+ * the game) to the moment the disk is picked up, and its drag duration from
+ * there to the drop. A move typed on the keyboard is not dragged: its think
+ * time runs up to the move itself and it has no drag duration.
+ */
+public class GameSession {
+	private final int difficulty;
+	private final RuleVariant rules;
+	private final boolean randomStart; // Whether the game started from a random board rather than the complete tower.
+	private long optimalMoves; // Length of an optimal game from the start board, unsigned.
+	private final GameClock clock = new GameClock();
+	private final LatencyHistogram thinkTimes = new LatencyHistogram();
+	private final LatencyHistogram dragTimes = new LatencyHistogram();
+	private int moveCount;
+	private long lastMoveNanos; // Clock reading of the last committed move.
+	private long pressNanos; // Clock reading of the last disk pick-up.
+
+	/**
+	 * Constructs a session for a new game.
+	 *
+	 * @param difficulty the difficulty of the game.
+	 * @param rules the rules the game is played under.
+	 * @param randomStart true if the game starts from a random board.
+	 */
+	public GameSession(int difficulty, RuleVariant rules, boolean randomStart) {
+		this.difficulty = difficulty;
+		this.rules = rules;
+		this.randomStart = randomStart;
+	}
+
+	/**
+	 * Restores the progress of a saved game. The move timings are not saved,
+	 * so only moves played after the restore are timed.
+	 *
+	 * @param moveCount the moves already played.
+	 * @param elapsedNanos the time already played, in nanoseconds.
+	 */
+	public void restore(int moveCount, long elapsedNanos) {
+		this.moveCount = moveCount;
+		clock.reset(elapsedNanos);
+	}
+
+	/**
+	 * Sets the move count after moves were undone or redone. The clock keeps running.
+	 *
+	 * @param moveCount the moves leading to the current board.
+	 */
+	public void rewind(int moveCount) {
+		this.moveCount = moveCount;
+	}
+
+	/**
+	 * Starts or resumes the play clock.
+	 */
+	public void start() {
+		clock.start();
+		lastMoveNanos = clock.elapsedNanos();
+	}
+
+	/**
+	 * Stops the play clock.
+	 */
+	public void stop() {
+		clock.stop();
+	}
+
+	/**
+	 * Records the moment a disk is picked up.
+	 */
+	public void diskPressed() {
+		pressNanos = clock.elapsedNanos();
+	}
+
+	/**
+	 * Counts a committed move and records its think time and drag duration.
+	 */
+	public void moveCommitted() {
+		long now = clock.elapsedNanos();
+		thinkTimes.record(pressNanos - lastMoveNanos);
+		dragTimes.record(now - pressNanos);
+		lastMoveNanos = now;
+		moveCount++;
+	}
+
+	/**
+	 * Counts a committed keyboard move and records its think time.
+	 */
+	public void moveTyped() {
+		long now = clock.elapsedNanos();
+		thinkTimes.record(now - lastMoveNanos);
+		lastMoveNanos = now;
+		moveCount++;
+	}
+
+	/**
+	 * Returns the difficulty of the game.
+	 *
+	 * @return the difficulty.
+	 */
+	public int difficulty() {
+		return difficulty;
+	}
+
+	/**
+	 * Returns the rules the game is played under.
+	 *
+	 * @return the rules.
+	 */
+	public RuleVariant rules() {
+		return rules;
+	}
+
+	/**
+	 * Checks whether the game started from a random board.
+	 *
+	 * @return true for a random start, false for the complete tower.
+	 */
+	public boolean randomStart() {
+		return randomStart;
+	}
+
+	/**
+	 * Sets the length of an optimal game from the start board.
+	 *
+	 * @param optimalMoves the number of moves, read as an unsigned long.
+	 */
+	public void optimalMoves(long optimalMoves) {
+		this.optimalMoves = optimalMoves;
+	}
+
+	/**
+	 * Returns the length of an optimal game from the start board.
+	 *
+	 * @return the number of moves, to be read as an unsigned long.
+	 */
+	public long optimalMoves() {
+		return optimalMoves;
+	}
+
+	/**
+	 * Returns the number of committed moves.
+	 *
+	 * @return the move count.
+	 */
+	public int moveCount() {
+		return moveCount;
+	}
+
+	/**
+	 * Returns the play clock of the game.
+	 *
+	 * @return the game clock.
+	 */
+	public GameClock clock() {
+		return clock;
+	}
+
+	/**
+	 * Returns the think times of the committed moves.
+	 *
+	 * @return the think time histogram.
+	 */
+	public LatencyHistogram thinkTimes() {
+		return thinkTimes;
+	}
+
+	/**
+	 * Returns the drag durations of the committed mouse moves.
+	 *
+	 * @return the drag duration histogram.
+	 */
+	public LatencyHistogram dragTimes() {
+		return dragTimes;
+	}
+}
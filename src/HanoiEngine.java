@@ -0,0 +1,186 @@
+/**
+ * HanoiEngine holds the state of a Towers of Hanoi board without any UI.
+ * Every peg is a primitive bitmask where bit {@code d} is set when disk
+ * {@code d} sits on that peg, disk 0 being the smallest. Because smaller
+ * disks always rest on larger ones, the top disk of a peg is its lowest set
+ * bit, which makes move legality and win detection O(1) and allocation free.
+ */
+public class HanoiEngine {
+	public static final int MAX_DISKS = 64; // One bit per disk in a long.
+	public static final int MAX_PEGS = 16; // Pegs must fit in a packed move nibble.
+	private final long[] pegs; // Bitmask of the disks stacked on each peg.
+	private int totalDisk; // Number of disks in play.
+	private long fullMask; // Bitmask with one bit per disk in play.
+
+	/**
+	 * Constructs an empty engine with the given number of pegs.
+	 *
+	 * @param pegCount The number of pegs of the board.
+	 */
+	public HanoiEngine(int pegCount) {
+		if (pegCount < 3 || pegCount > MAX_PEGS)
+			throw new IllegalArgumentException("Unsupported peg count: " + pegCount);
+		this.pegs = new long[pegCount];
+	}
+
+	/**
+	 * Clears the board and stacks every disk on the start peg.
+	 *
+	 * @param totalDisk The number of disks in play.
+	 * @param startPeg The peg holding the initial tower.
+	 */
+	public void reset(int totalDisk, int startPeg) {
+		if (totalDisk < 0 || totalDisk > MAX_DISKS)
+			throw new IllegalArgumentException("Unsupported disk count: " + totalDisk);
+		this.totalDisk = totalDisk;
+		this.fullMask = totalDisk == MAX_DISKS ? -1L : (1L << totalDisk) - 1;
+		for (int i = 0; i < pegs.length; i++) pegs[i] = 0;
+		pegs[startPeg] = fullMask;
+	}
+
+	/**
+	 * Checks whether the top disk of a peg may be moved onto another peg.
+	 * Subtracting one from the lowest set bits turns an empty source into the
+	 * largest unsigned value and an empty destination likewise, so a single
+	 * unsigned comparison covers every case.
+	 *
+	 * @param from The source peg.
+	 * @param to The destination peg.
+	 * @return True if the move is legal, else false.
+	 */
+	public boolean canMove(int from, int to) {
+		long fromTop = pegs[from] & -pegs[from];
+		long toTop = pegs[to] & -pegs[to];
+		return from != to && Long.compareUnsigned(fromTop - 1, toTop - 1) < 0;
+	}
+
+	/**
+	 * Moves the top disk of a peg onto another peg if the move is legal.
+	 *
+	 * @param from The source peg.
+	 * @param to The destination peg.
+	 * @return True if the move was applied, else false.
+	 */
+	public boolean move(int from, int to) {
+		if (!canMove(from, to)) return false;
+		long top = pegs[from] & -pegs[from];
+		pegs[from] ^= top;
+		pegs[to] |= top;
+		return true;
+	}
+
+	/**
+	 * Checks whether every disk is stacked on the given peg.
+	 *
+	 * @param goalPeg The peg that should hold the complete tower.
+	 * @return True if the tower is complete on that peg, else false.
+	 */
+	public boolean isSolved(int goalPeg) {
+		return pegs[goalPeg] == fullMask;
+	}
+
+	/**
+	 * Returns the smallest disk on a peg.
+	 *
+	 * @param peg The peg to inspect.
+	 * @return The top disk, or -1 if the peg is empty.
+	 */
+	public int topDisk(int peg) {
+		return pegs[peg] == 0 ? -1 : Long.numberOfTrailingZeros(pegs[peg]);
+	}
+
+	/**
+	 * Returns the disk right below the given one on its peg.
+	 *
+	 * @param disk The disk to inspect.
+	 * @return The disk below, or -1 if the disk lies at the bottom.
+	 */
+	public int diskBelow(int disk) {
+		long below = pegs[pegOf(disk)] & ~((2L << disk) - 1);
+		return below == 0 ? -1 : Long.numberOfTrailingZeros(below);
+	}
+
+	/**
+	 * Returns the number of disks below the given one on its peg.
+	 *
+	 * @param disk The disk to inspect.
+	 * @return The stack level of the disk, 0 being the bottom of the peg.
+	 */
+	public int levelOf(int disk) {
+		return Long.bitCount(pegs[pegOf(disk)] & ~((2L << disk) - 1));
+	}
+
+	/**
+	 * Returns the peg holding the given disk.
+	 *
+	 * @param disk The disk to look for.
+	 * @return The index of the peg, or -1 if the disk is not in play.
+	 */
+	public int pegOf(int disk) {
+		long bit = 1L << disk;
+		for (int i = 0; i < pegs.length; i++) if ((pegs[i] & bit) != 0) return i;
+		return -1;
+	}
+
+	/**
+	 * Returns the number of disks stacked on a peg.
+	 *
+	 * @param peg The peg to inspect.
+	 * @return The height of the stack.
+	 */
+	public int height(int peg) {
+		return Long.bitCount(pegs[peg]);
+	}
+
+	/**
+	 * Returns the raw bitmask of a peg.
+	 *
+	 * @param peg The peg to inspect.
+	 * @return The bitmask of the disks on that peg.
+	 */
+	public long peg(int peg) {
+		return pegs[peg];
+	}
+
+	/**
+	 * Copies the peg bitmasks into the given array.
+	 *
+	 * @param dst The array receiving one bitmask per peg.
+	 */
+	public void copyPegs(long[] dst) {
+		System.arraycopy(pegs, 0, dst, 0, pegs.length);
+	}
+
+	/**
+	 * Replaces the board with the given peg bitmasks.
+	 *
+	 * @param src One bitmask per peg, holding every disk in play exactly once.
+	 */
+	public void setPegs(long[] src) {
+		long seen = 0;
+		for (int i = 0; i < pegs.length; i++) {
+			if ((seen & src[i]) != 0) throw new IllegalArgumentException("Disk on two pegs");
+			seen |= src[i];
+		}
+		if (seen != fullMask) throw new IllegalArgumentException("Board does not hold every disk");
+		System.arraycopy(src, 0, pegs, 0, pegs.length);
+	}
+
+	/**
+	 * Returns the number of pegs of the board.
+	 *
+	 * @return The peg count.
+	 */
+	public int pegCount() {
+		return pegs.length;
+	}
+
+	/**
+	 * Returns the number of disks in play.
+	 *
+	 * @return The disk count.
+	 */
+	public int totalDisk() {
+		return totalDisk;
+	}
+}
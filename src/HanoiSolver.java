@@ -0,0 +1,155 @@
+/**
+ * HanoiSolver streams the 2^n-1 optimal moves of the three-peg puzzle
+ * without recursion. The k-th move always carries disk {@code ntz(k)}, and
+ * its pegs follow from the bits of k alone, so any move or intermediate
+ * board can be computed in O(n) without replaying the moves before it.
+ * Move numbers are treated as unsigned longs, which covers all 64 disks
+ * supported by {@link HanoiEngine}.
+ */
+public class HanoiSolver implements RuleVariant.Solver {
+	private final int totalDisk; // Number of disks of the tower.
+	private final int[] label = new int[3]; // Actual peg of each canonical peg.
+	private final long totalMoves; // 2^n-1, read as an unsigned long.
+	private long nextMove; // Number of the next streamed move, starting at 1.
+	private long remaining; // Moves left to stream.
+
+	/**
+	 * Constructs a solver that moves a complete tower between two pegs.
+	 *
+	 * @param totalDisk The number of disks of the tower.
+	 * @param from The peg holding the tower.
+	 * @param to The peg that should receive the tower.
+	 */
+	public HanoiSolver(int totalDisk, int from, int to) {
+		if (totalDisk < 0 || totalDisk > HanoiEngine.MAX_DISKS)
+			throw new IllegalArgumentException("Unsupported disk count: " + totalDisk);
+		if (from == to || from < 0 || to < 0 || from > 2 || to > 2)
+			throw new IllegalArgumentException("Invalid pegs: " + from + ", " + to);
+		this.totalDisk = totalDisk;
+		this.totalMoves = totalDisk == HanoiEngine.MAX_DISKS ? -1L : (1L << totalDisk) - 1;
+
+		// The bit formulas move the tower from canonical peg 0 to peg 2 for an
+		// odd number of disks and to peg 1 for an even one.
+		int target = (totalDisk & 1) == 1 ? 2 : 1;
+		label[0] = from;
+		label[target] = to;
+		label[3 - target] = 3 - from - to;
+		reset();
+	}
+
+	/**
+	 * Rewinds the stream to the first move.
+	 */
+	public void reset() {
+		seek(0);
+	}
+
+	/**
+	 * Positions the stream so that the next streamed move is move k + 1.
+	 *
+	 * @param k The number of moves already played.
+	 */
+	public void seek(long k) {
+		this.nextMove = k + 1;
+		this.remaining = totalMoves - k;
+	}
+
+	/**
+	 * Checks whether the stream has more moves.
+	 *
+	 * @return True if another move is available, else false.
+	 */
+	public boolean hasNext() {
+		return remaining != 0;
+	}
+
+	/**
+	 * Streams the next optimal move.
+	 *
+	 * @return The packed move, or {@link Moves#NONE} once the tower is moved.
+	 */
+	public int next() {
+		if (remaining == 0) return Moves.NONE;
+		remaining--;
+		return move(nextMove++);
+	}
+
+	/**
+	 * Computes the k-th move of the optimal solution without replaying the previous ones.
+	 *
+	 * @param k The move number, from 1 to 2^n-1.
+	 * @return The packed move.
+	 */
+	public int move(long k) {
+		if (k == 0 || Long.compareUnsigned(k, totalMoves) > 0)
+			throw new IllegalArgumentException("Move out of range: " + Long.toUnsignedString(k));
+		int disk = Long.numberOfTrailingZeros(k);
+		long low = k & (k - 1), high = k | (k - 1);
+		int from = (int) (low >= 0 ? low % 3 : Long.remainderUnsigned(low, 3));
+		int to = (int) ((high >= 0 ? high % 3 : Long.remainderUnsigned(high, 3)) + 1) % 3;
+		return Moves.pack(disk, label[from], label[to]);
+	}
+
+	/**
+	 * Computes the board after k optimal moves without replaying them. Disk d
+	 * moves once every 2^(d+1) moves, always turning the same way around the
+	 * three pegs, so its peg follows from the number of times it has moved.
+	 *
+	 * @param k The number of moves played, from 0 to 2^n-1.
+	 * @param pegs The array receiving one bitmask per peg.
+	 */
+	public void stateAfter(long k, long[] pegs) {
+		if (Long.compareUnsigned(k, totalMoves) > 0)
+			throw new IllegalArgumentException("Move out of range: " + Long.toUnsignedString(k));
+		pegs[0] = pegs[1] = pegs[2] = 0;
+		for (int disk = 0; disk < totalDisk; disk++) {
+			long shifted = k >>> disk;
+			long moved = (shifted >>> 1) + (shifted & 1);
+			int step = (disk & 1) == 0 ? 2 : 1;
+			int peg = (int) (Long.remainderUnsigned(moved, 3) * step % 3);
+			pegs[label[peg]] |= 1L << disk;
+		}
+	}
+
+	/**
+	 * Computes the length of the shortest solution from any three-peg board.
+	 * Going from the largest disk down, a disk that is not on the target must
+	 * move there once, after every smaller disk has gathered on the third peg,
+	 * which costs 2^d moves and makes that third peg the target of the
+	 * smaller disks.
+	 *
+	 * @param engine The three-peg board.
+	 * @param goalPeg The peg that should receive every disk.
+	 * @return The number of moves, to be read as an unsigned long.
+	 */
+	public static long distance(HanoiEngine engine, int goalPeg) {
+		if (engine.pegCount() != 3) throw new IllegalArgumentException("Three pegs expected");
+		long moves = 0;
+		int target = goalPeg;
+		for (int disk = engine.totalDisk() - 1; disk >= 0; disk--) {
+			int peg = engine.pegOf(disk);
+			if (peg == target) continue;
+			moves += 1L << disk;
+			target = 3 - peg - target;
+		}
+		return moves;
+	}
+
+	/**
+	 * Returns the length of the optimal solution.
+	 *
+	 * @return 2^n-1, to be read as an unsigned long.
+	 */
+	public long totalMoves() {
+		return totalMoves;
+	}
+
+	/**
+	 * Returns the number of disks of the tower.
+	 *
+	 * @return The disk count.
+	 */
+	public int totalDisk() {
+		return totalDisk;
+	}
+}
@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/**
+ * LatencyHistogram records durations into fixed log-linear buckets so that
+ * recording never allocates. Every power of two is split into 32 buckets,
+ * which keeps percentiles within about 3% of the exact value from
+ * nanoseconds up to days.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BITS = 5; // log2 of the buckets per power of two.
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int LINEAR = SUB_COUNT * 2; // Values below this get a bucket each.
+	private final long[] counts = new long[LINEAR + (64 - SUB_BITS) * SUB_COUNT];
+	private long count, sum, min = Long.MAX_VALUE, max;
+
+	/**
+	 * Records one duration.
+	 *
+	 * @param nanos the duration in nanoseconds; negative values count as 0.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts[indexOf(value)]++;
+		count++;
+		sum += value;
+		if (value < min) min = value;
+		if (value > max) max = value;
+	}
+
+	/**
+	 * Forgets every recorded duration.
+	 */
+	public void clear() {
+		Arrays.fill(counts, 0);
+		count = sum = max = 0;
+		min = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the duration below which the given share of the records fall.
+	 *
+	 * @param percentile the share, from 0 to 100.
+	 * @return the duration in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long percentile(double percentile) {
+		if (count == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		if (rank >= count) return max;
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(max, Math.max(min, midpointOf(i)));
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the number of recorded durations.
+	 *
+	 * @return the record count.
+	 */
+	public long count() {
+		return count;
+	}
+
+	/**
+	 * Returns the average of the recorded durations.
+	 *
+	 * @return the mean in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long mean() {
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * Returns the longest recorded duration.
+	 *
+	 * @return the maximum in nanoseconds.
+	 */
+	public long max() {
+		return max;
+	}
+
+	private static int indexOf(long value) {
+		if (value < LINEAR) return (int) value;
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return LINEAR + (shift - 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+	}
+
+	private static long midpointOf(int index) {
+		if (index < LINEAR) return index;
+		int shift = (index - LINEAR) / SUB_COUNT + 1;
+		long low = (long) ((index - LINEAR) % SUB_COUNT + SUB_COUNT) << shift;
+		return low + (1L << shift) / 2;
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * MoveHistory keeps the moves of a game for undo, redo and timeline jumps.
+ * Moves are packed ints (see {@link Moves}) in a ring buffer, and the board
+ * is copied into a second ring every {@link #CHECKPOINT_INTERVAL} moves, so
+ * recording a move never allocates. Jumping to any move restores the
+ * nearest checkpoint before it and replays fewer than
+ * {@link #CHECKPOINT_INTERVAL} moves.
+ * <p>
+ * Positions count the moves from the start of the history. When the ring
+ * is full, the oldest block of {@link #CHECKPOINT_INTERVAL} moves is
+ * dropped and {@link #first()} moves forward.
+ * <p>
+ * Undo plays the reverse move on the board without asking the rules of
+ * the game: the board it restores was reached by legal moves.
+ */
+public class MoveHistory {
+	static final int CHECKPOINT_INTERVAL = 64; // Moves between two board copies.
+	private final int[] moves; // Packed moves, indexed by position modulo the capacity.
+	private final long[] checkpoints; // One board per block of moves, pegCount longs each.
+	private final long[] board; // Scratch board restored from a checkpoint.
+	private final int pegCount;
+	private long first; // Oldest position that can still be restored.
+	private long position; // Moves applied to the board.
+	private long end; // Moves recorded; positions after the current one can be redone.
+
+	/**
+	 * Constructs a history.
+	 *
+	 * @param pegCount the number of pegs of the boards.
+	 * @param capacity the number of moves kept, rounded up to a multiple of {@link #CHECKPOINT_INTERVAL}.
+	 */
+	public MoveHistory(int pegCount, int capacity) {
+		int blocks = Math.max(1, (capacity + CHECKPOINT_INTERVAL - 1) / CHECKPOINT_INTERVAL);
+		this.pegCount = pegCount;
+		this.moves = new int[blocks * CHECKPOINT_INTERVAL];
+		this.checkpoints = new long[(blocks + 1) * pegCount];
+		this.board = new long[pegCount];
+	}
+
+	/**
+	 * Forgets every move and starts the history from the current board.
+	 *
+	 * @param engine the board the history starts from.
+	 */
+	public void reset(HanoiEngine engine) {
+		first = position = end = 0;
+		checkpoint(engine);
+	}
+
+	/**
+	 * Records a move just applied to the board, discarding the moves that could be redone.
+	 *
+	 * @param disk the moved disk.
+	 * @param from the source peg.
+	 * @param to the destination peg.
+	 * @param engine the board after the move.
+	 */
+	public void record(int disk, int from, int to, HanoiEngine engine) {
+		moves[(int) (position % moves.length)] = Moves.pack(disk, from, to);
+		end = ++position;
+		if (end - first > moves.length) first += CHECKPOINT_INTERVAL;
+		if (position % CHECKPOINT_INTERVAL == 0) checkpoint(engine);
+	}
+
+	/**
+	 * Checks whether a move can be undone.
+	 *
+	 * @return true if the position is after the oldest kept move.
+	 */
+	public boolean canUndo() {
+		return position > first;
+	}
+
+	/**
+	 * Checks whether an undone move can be redone.
+	 *
+	 * @return true if moves were undone since the last recorded move.
+	 */
+	public boolean canRedo() {
+		return position < end;
+	}
+
+	/**
+	 * Takes back the last move.
+	 *
+	 * @param engine the board to update.
+	 * @return the packed move that was undone, or {@link Moves#NONE}.
+	 */
+	public int undo(HanoiEngine engine) {
+		if (!canUndo()) return Moves.NONE;
+		int move = moves[(int) (--position % moves.length)];
+		engine.move(Moves.to(move), Moves.from(move));
+		return move;
+	}
+
+	/**
+	 * Plays again the last undone move.
+	 *
+	 * @param engine the board to update.
+	 * @return the packed move that was redone, or {@link Moves#NONE}.
+	 */
+	public int redo(HanoiEngine engine) {
+		if (!canRedo()) return Moves.NONE;
+		int move = moves[(int) (position++ % moves.length)];
+		engine.move(Moves.from(move), Moves.to(move));
+		return move;
+	}
+
+	/**
+	 * Sets the board to its state after a given number of moves, restoring
+	 * the nearest checkpoint and replaying the moves after it.
+	 *
+	 * @param k the position, from {@link #first()} to {@link #end()}.
+	 * @param engine the board to update.
+	 */
+	public void seek(long k, HanoiEngine engine) {
+		if (k < first || k > end) throw new IndexOutOfBoundsException("No position " + k);
+		long block = k / CHECKPOINT_INTERVAL;
+		if (k < position && block == position / CHECKPOINT_INTERVAL) {
+			while (position > k) undo(engine);
+			return;
+		}
+		if (k < position || block != position / CHECKPOINT_INTERVAL) {
+			int slot = (int) (block % (checkpoints.length / pegCount)) * pegCount;
+			System.arraycopy(checkpoints, slot, board, 0, pegCount);
+			engine.setPegs(board);
+			position = block * CHECKPOINT_INTERVAL;
+		}
+		while (position < k) redo(engine);
+	}
+
+	/**
+	 * Returns the number of moves applied to the board.
+	 *
+	 * @return the position.
+	 */
+	public long position() {
+		return position;
+	}
+
+	/**
+	 * Returns the oldest position that can be restored.
+	 *
+	 * @return the first position.
+	 */
+	public long first() {
+		return first;
+	}
+
+	/**
+	 * Returns the number of recorded moves, including the ones undone.
+	 *
+	 * @return the last position.
+	 */
+	public long end() {
+		return end;
+	}
+
+	private void checkpoint(HanoiEngine engine) {
+		int slot = (int) (position / CHECKPOINT_INTERVAL % (checkpoints.length / pegCount)) * pegCount;
+		for (int i = 0; i < pegCount; i++) checkpoints[slot + i] = engine.peg(i);
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ * Moves packs a single disk move into a primitive int so solvers, recorders
+ * and histories can stream moves without allocating an object per move.
+ * Bits 0-3 hold the destination peg, bits 4-7 the source peg and bits 8-15
+ * the moved disk.
+ */
+public final class Moves {
+	public static final int NONE = -1; // Returned when no move is available.
+
+	private Moves() {
+	}
+
+	/**
+	 * Packs a move into an int.
+	 *
+	 * @param disk The moved disk, 0 being the smallest.
+	 * @param from The source peg.
+	 * @param to The destination peg.
+	 * @return The packed move.
+	 */
+	public static int pack(int disk, int from, int to) {
+		return disk << 8 | from << 4 | to;
+	}
+
+	/**
+	 * Returns the disk of a packed move.
+	 *
+	 * @param move The packed move.
+	 * @return The moved disk.
+	 */
+	public static int disk(int move) {
+		return (move >>> 8) & 0xFF;
+	}
+
+	/**
+	 * Returns the source peg of a packed move.
+	 *
+	 * @param move The packed move.
+	 * @return The source peg.
+	 */
+	public static int from(int move) {
+		return (move >>> 4) & 0xF;
+	}
+
+	/**
+	 * Returns the destination peg of a packed move.
+	 *
+	 * @param move The packed move.
+	 * @return The destination peg.
+	 */
+	public static int to(int move) {
+		return move & 0xF;
+	}
+
+	/**
+	 * Formats a packed move for logs and reports.
+	 *
+	 * @param move The packed move.
+	 * @return A text of the form {@code disk:fromto}.
+	 */
+	public static String toString(int move) {
+		return disk(move) + ":" + from(move) + to(move);
+	}
+}
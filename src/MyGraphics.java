@@ -1,26 +1,41 @@
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.GraphicsDevice;
 import java.awt.GraphicsEnvironment;
 import java.awt.Insets;
-import java.awt.Rectangle;
 import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.event.MouseMotionAdapter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
-import javax.swing.ImageIcon;
+import javax.swing.AbstractAction;
+import javax.swing.ActionMap;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.InputMap;
+import javax.swing.JComponent;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JLayeredPane;
 import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.JSpinner;
+import javax.swing.KeyStroke;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
  * MyGraphics is responsible for rendering the GUI application for
@@ -28,164 +43,745 @@ import javax.swing.SwingUtilities;
  * (start, difficulty selection, game, and win) and handles user interactions.
  */
 public class MyGraphics extends JFrame {
-	private JPanel mainPanel;
-	private int elapsedSeconds, difficulty, moveCount = 0, screen;
-	private final Disk[] inferiorDisk = new Disk[7];
+	private static final String[] SCREEN_NAMES = {"start", "difficulty", "game", "win"}; // Screens by the value of screen.
+	private final ScreenManager screens = new ScreenManager(new Color(215, 196, 183));
+	private final PerfOverlay perfOverlay = new PerfOverlay();
+	private int difficulty, screen;
+	private GameSession session;
+	private RuleVariant rules = RuleVariant.CLASSIC; // Rules of the next new game, picked on the difficulty screen.
+	private JComboBox<RuleVariant> rulesBox;
+	private boolean randomStarts; // Whether new classic three-peg games start from a random rated board.
+	private JCheckBox randomStartBox;
+	private final int pegCount = Integer.getInteger("hanoi.pegs", 3);
+	private final HanoiEngine engine = new HanoiEngine(pegCount);
+	private BoardLayout layout;
 	private JLabel timerLabel;
 	private List<Disk> disks;
-	private final Color[] diskColor = {
-		new Color(150, 156, 78),
-		new Color(104, 163, 149),
-		new Color(58, 43, 117),
-		new Color(133, 62, 110),
-		new Color(78, 110, 82),
-		new Color(201, 163, 73),
-		new Color(200, 40, 40)
-	};
-	private Timer gameTimer;
-	private final Tower[] towers = new Tower[3];
+	static final int EXHIBITION = 4; // Difficulty of the boards with a chosen number of disks.
+	private int exhibitionDisks = 25; // Disk count of the next exhibition board.
+	private final Timer clockTimer = new Timer(100, _ -> refreshTimerLabel());
+	private long shownSeconds = -1; // Seconds currently displayed by timerLabel.
+	private final Tower[] towers = new Tower[pegCount];
+	private final SpriteCache spriteCache = new SpriteCache();
+	private final BoardCanvas boardCanvas = new BoardCanvas(spriteCache);
+	private final DragPipeline dragPipeline = new DragPipeline(boardCanvas);
+	private Disk draggedDisk;
+	private static final int KEY_MOVE_CAPACITY = 64; // Typed moves held before the queue is drained inline.
+	private final int[] keyMoves = new int[KEY_MOVE_CAPACITY]; // Ring of typed moves, packed as from * 256 + to.
+	private final long[] keyMoveNanos = new long[KEY_MOVE_CAPACITY]; // When each queued move was typed.
+	private int keyMoveHead, keyMoveCount; // First queued move and number of queued moves.
+	private boolean keyMovesPosted; // Set while a drain waits on the event queue.
+	private int selectedPeg = -1; // Source peg typed first, or -1.
+	private final ReplayRecorder replayRecorder = createReplayRecorder();
+	private final SessionStore sessionStore = createSessionStore();
+	private final ResultStore resultStore = createResultStore();
+	private final MoveHistory history = new MoveHistory(pegCount, 1 << 16);
+	private int historyBase; // Moves played before the history starts, when a saved game is resumed.
+	private JSlider timeline;
+	private boolean timelineUpdating; // Set while the timeline is updated from the board, not by the user.
+	private RoundedBtn undoBtn, redoBtn;
+	private final AutoSolver autoSolver = new AutoSolver(pegCount, pegCount - 1);
+	private final Timer autoSolveTimer = new Timer(DragPipeline.frameInterval(), _ -> showAutoSolveFrame());
+	private final long[] autoSolvePegs = new long[pegCount]; // Board read from the auto-solver each frame.
+	private long autoSolveShown; // Auto-solver moves shown on the board.
+	private int autoSolveBase; // Move count when the auto-solve started.
+	private boolean autoSolved; // Whether auto-solve was used in the current game.
+	private RoundedBtn autoSolveBtn;
+	private JSlider speedSlider;
+	private JLabel speedLabel;
+	private static final Cursor HAND_CURSOR = Cursor.getPredefinedCursor(Cursor.HAND_CURSOR);
+	private static final Cursor DEFAULT_CURSOR = Cursor.getDefaultCursor();
     private JLabel movesLabel;
+	private JLabel distanceLabel; // Moves left to an optimal finish and efficiency so far.
+	private static final String DISTANCE_TIP = "Moves left to an optimal finish, and optimal moves over the moves the game will take";
+	private JLabel rulesLabel; // Rules of the game unless classic, or the rating of a random start.
+	private JLabel winMovesLabel, winTimeLabel, winStatsLabel, winRankLabel;
+	private final DistanceTracker distanceTracker = new DistanceTracker(pegCount - 1, openTablebase());
 	public static final Dimension SCREEN_SIZE = Toolkit.getDefaultToolkit().getScreenSize();
 
     /**
      * Constructor. Initializes the application window and sets up the initial UI state.
      */
     public MyGraphics() {
+		StartupTrace.mark("stores opened");
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setUndecorated(true);
 		SwingUtilities.invokeLater(this::setFullScreen);
 
-		mainPanel = new JPanel();
-        mainPanel.setLayout(null);
-        mainPanel.setOpaque(true);
-		mainPanel.setBackground(new Color(215, 196, 183));
-		mainPanel.setBounds(0, 0, this.getPreferredSize().width, this.getPreferredSize().height);
+		buildStartScreen(screens.addScreen(SCREEN_NAMES[0]));
+		buildDifficultySelectionScreen(screens.addScreen(SCREEN_NAMES[1]));
+		buildGameScreen(screens.addScreen(SCREEN_NAMES[2]));
+		buildWinScreen(screens.addScreen(SCREEN_NAMES[3]));
+		StartupTrace.mark("screens built");
 
-		displayStartScreen();
-		add(mainPanel);
+		perfOverlay.setLocation(10, 52);
+		getLayeredPane().add(perfOverlay, JLayeredPane.POPUP_LAYER);
+
+		installBoardListeners();
+		installHistoryKeys();
+		installOverlayKey();
+		installMoveKeys();
+		SessionStore.Snapshot saved = sessionStore.load(pegCount);
+		if (saved != null) displayGameScreen(saved.difficulty(), saved);
+		else displayStartScreen();
+		StartupTrace.mark("session loaded");
+		screens.onFirstPaint(() -> {
+			StartupTrace.mark("first frame");
+			Preloader.boards(SCREEN_SIZE, pegCount, diskCount(1), diskCount(2), diskCount(3), diskCount(EXHIBITION));
+			if (pegCount == 3) StartPool.prepare(diskCount(1), diskCount(2), diskCount(3));
+		});
+		add(screens);
 		setVisible(true);
+		StartupTrace.mark("window shown");
 	}
 
+    /**
+     * Creates the recorder appending every game to the replay archive of the data directory.
+     *
+     * @return the replay recorder.
+     */
+    private static ReplayRecorder createReplayRecorder() {
+		try {
+			return new ReplayRecorder(AppFiles.file("replays.hnr"));
+		} catch (IOException e) {
+			System.err.println("Replays disabled: " + e.getMessage());
+			return new ReplayRecorder(null);
+		}
+    }
+
+    /**
+     * Opens the four-peg tablebase named by the {@code hanoi.tablebase}
+     * property, built beforehand with {@link FourPegTablebase#main}.
+     *
+     * @return the tablebase, or null when the property is unset or the file cannot be read.
+     */
+    private static FourPegTablebase openTablebase() {
+		String file = System.getProperty("hanoi.tablebase");
+		if (file == null) return null;
+		try {
+			return FourPegTablebase.open(Path.of(file));
+		} catch (IOException e) {
+			System.err.println("Tablebase disabled: " + e.getMessage());
+			return null;
+		}
+    }
+
+    /**
+     * Creates the store keeping the game in progress in the data directory.
+     *
+     * @return the session store.
+     */
+    private static SessionStore createSessionStore() {
+		try {
+			return new SessionStore(AppFiles.file("session.bin"), AppFiles.file("session.jnl"));
+		} catch (IOException e) {
+			System.err.println("Saved games disabled: " + e.getMessage());
+			return new SessionStore(null, null);
+		}
+    }
+
+    /**
+     * Creates the store keeping the results of won games in the data directory.
+     *
+     * @return the result store.
+     */
+    private static ResultStore createResultStore() {
+		try {
+			Path directory = AppFiles.file("results");
+			Files.createDirectories(directory);
+			return new ResultStore(directory);
+		} catch (IOException e) {
+			System.err.println("Results kept in memory: " + e.getMessage());
+			return new ResultStore(null);
+		}
+    }
+
     /**
      * Sets the window to fullscreen mode.
      */
 	private void setFullScreen() {
         GraphicsDevice gd = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
         gd.setFullScreenWindow(this);
+		StartupTrace.mark("full screen");
+    }
+
+    /**
+     * Shows a screen built by the constructor.
+     *
+     * @param screen the screen: 0 start, 1 difficulty selection, 2 game, 3 win.
+     */
+    private void showScreen(int screen) {
+		GameEvents.ScreenChange event = new GameEvents.ScreenChange();
+		event.begin();
+		event.from = screens.current();
+		event.to = SCREEN_NAMES[screen];
+		this.screen = screen;
+		screens.show(SCREEN_NAMES[screen]);
+		event.commit();
     }
 
     /**
-     * Adds a close button to the UI, which exits the application on click.
+     * Adds a close button to a screen, which exits the application on click.
+     *
+     * @param panel the screen.
      */
-    private void paintCloseBtn() {
+    private void paintCloseBtn(JPanel panel) {
 		RoundedBtn closeBtn = new RoundedBtn("", 32, 32, 16, new Color(247, 87, 87), Color.BLACK);
-		closeBtn.setIcon(new ImageIcon(getClass().getResource("../assets/close_24px.png")));
+		closeBtn.setIcon(AssetRegistry.icon(AssetRegistry.CLOSE_ICON));
         closeBtn.setMargin(new Insets(2, 5, 2, 5));
-        closeBtn.addActionListener(_ -> {System.exit(0);});
+        closeBtn.addActionListener(_ -> {
+			if (screen == 2) {
+				stopAutoSolve();
+				replayRecorder.endGame(session.clock().elapsedMillis(), false);
+				sessionStore.save(engine, session);
+				sessionStore.flush(2000);
+			}
+			replayRecorder.flush(2000);
+			resultStore.flush(2000);
+			System.exit(0);
+		});
 		closeBtn.setBounds(SCREEN_SIZE.width - 42, 10, 32, 32);
 
-        mainPanel.add(closeBtn);
+        panel.add(closeBtn);
 	}
 
     /**
-     * Adds a back button to the UI, which navigates to the previous screen state.
+     * Adds a back button to a screen, which navigates to the previous screen state.
+     *
+     * @param panel the screen.
      */
-    private void paintBackBtn() {
+    private void paintBackBtn(JPanel panel) {
 		RoundedBtn backBtn = new RoundedBtn("", 32, 32, 16, new Color(143, 207, 153), Color.BLACK);
-		backBtn.setIcon(new ImageIcon(getClass().getResource("../assets/arrow_back_24px.png")));
+		backBtn.setIcon(AssetRegistry.icon(AssetRegistry.BACK_ICON));
 		backBtn.setMargin(new Insets(2, 5, 2, 5));
 		backBtn.addActionListener(_ -> {
             if (screen == 2) {
+				stopAutoSolve();
 				stopTimer();
-				moveCount = 0;
-				elapsedSeconds = 0;
+				replayRecorder.endGame(session.clock().elapsedMillis(), false);
+				sessionStore.save(engine, session);
+				session = null;
 				if (disks != null) disks.clear();
-				for (int i = 0; i < 3; i++) towers[i] = null;
-				for (int i = 0; i < 7; i++) inferiorDisk[i] = null;
+				for (int i = 0; i < towers.length; i++) towers[i] = null;
 
 				displayDifficultySelectionScreen();
 			}
         });
 		backBtn.setBounds(10, 10, 32, 32);
 
-		mainPanel.add(backBtn);
+		panel.add(backBtn);
 	}
 
     /**
-     * Adds the top panel containing the timer and move count.
+     * Adds the top panel containing the timer and move count to the game screen.
+     *
+     * @param panel the game screen.
      */
-    private void paintTopPanel() {
+    private void paintTopPanel(JPanel panel) {
 		JPanel topPanel = new JPanel();
 		topPanel.setLayout(null);
 		topPanel.setOpaque(false);
 
-		int minutes = elapsedSeconds / 60;
-        int seconds = elapsedSeconds % 60;
-        timerLabel = new JLabel(String.format("Time %02d:%02d", minutes, seconds));
-        timerLabel.setFont(new Font("Arial", Font.BOLD, 24));
+        timerLabel = new JLabel("Time " + GameClock.format(0, false));
+        timerLabel.setFont(AssetRegistry.font(Font.BOLD, 24));
 		timerLabel.setForeground(Color.DARK_GRAY);
 		timerLabel.setBounds(0, 0, 200, timerLabel.getPreferredSize().height);
 		timerLabel.setOpaque(false);
 
-        movesLabel = new JLabel("Moves " + moveCount);
-        movesLabel.setFont(new Font("Arial", Font.BOLD, 24));
+        movesLabel = new JLabel("Moves 0");
+        movesLabel.setFont(AssetRegistry.font(Font.BOLD, 24));
 		movesLabel.setForeground(Color.DARK_GRAY);
-		movesLabel.setBounds(250, 0, 200, movesLabel.getPreferredSize().height);
+		movesLabel.setBounds(190, 0, 200, movesLabel.getPreferredSize().height);
 		movesLabel.setOpaque(false);
 
-		topPanel.setPreferredSize(new Dimension(450, timerLabel.getPreferredSize().height));
-		topPanel.setBounds((SCREEN_SIZE.width - 450) / 2, 20, 450, topPanel.getPreferredSize().height);
+		distanceLabel = new JLabel();
+		distanceLabel.setFont(AssetRegistry.font(Font.BOLD, 16));
+		distanceLabel.setForeground(Color.DARK_GRAY);
+		distanceLabel.setToolTipText(DISTANCE_TIP);
+		distanceLabel.setBounds(390, 0, 340, 32);
+		distanceLabel.setOpaque(false);
+
+		undoBtn = new RoundedBtn("Undo", 70, 32, 15, new Color(143, 207, 153), Color.DARK_GRAY);
+		undoBtn.setFont(AssetRegistry.font(Font.PLAIN, 14));
+		undoBtn.setBounds(740, 0, 70, 32);
+		undoBtn.addActionListener(_ -> undoMove());
+		redoBtn = new RoundedBtn("Redo", 70, 32, 15, new Color(143, 207, 153), Color.DARK_GRAY);
+		redoBtn.setFont(AssetRegistry.font(Font.PLAIN, 14));
+		redoBtn.setBounds(820, 0, 70, 32);
+		redoBtn.addActionListener(_ -> redoMove());
+
+		timeline = new JSlider(0, 0, 0);
+		timeline.setOpaque(false);
+		timeline.setFocusable(false);
+		timeline.setBounds(0, 40, 890, timeline.getPreferredSize().height);
+		timeline.addChangeListener(_ -> {
+			if (!timelineUpdating) seekMove(timeline.getValue(), !timeline.getValueIsAdjusting());
+		});
+
+		rulesLabel = new JLabel();
+		rulesLabel.setFont(AssetRegistry.font(Font.BOLD, 16));
+		rulesLabel.setForeground(Color.DARK_GRAY);
+		rulesLabel.setHorizontalAlignment(SwingConstants.CENTER);
+		rulesLabel.setBounds(0, 40 + timeline.getPreferredSize().height, 890, 24);
+
+		topPanel.setPreferredSize(new Dimension(890, 64 + timeline.getPreferredSize().height));
+		topPanel.setBounds((SCREEN_SIZE.width - 890) / 2, 20, 890, topPanel.getPreferredSize().height);
 
         topPanel.add(timerLabel);
         topPanel.add(movesLabel);
+        topPanel.add(distanceLabel);
+        topPanel.add(undoBtn);
+        topPanel.add(redoBtn);
+        topPanel.add(timeline);
+        topPanel.add(rulesLabel);
 
-        mainPanel.add(topPanel);
+        panel.add(topPanel);
 	}
 
     /**
-     * Removes game components from the main panel, preparing for a screen refresh.
+     * Installs the mouse handlers of the board canvas. Disks are hit-tested on the
+     * canvas, so a single pair of listeners serves every disk of every game.
      */
-    public void removeGameComponents() {
-        for (int i = 0; i < 3; i++) mainPanel.remove(towers[i]);
-		for (int i = 0; i < disks.size(); i++) mainPanel.remove(disks.get(i));
+    private void installBoardListeners() {
+		MouseAdapter handler = new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e) {
+				GameEvents.DiskPress event = new GameEvents.DiskPress();
+				event.begin();
+				Disk disk = boardCanvas.diskAt(e.getX(), e.getY());
+				if (disk == null || !disk.isTop() || autoSolveTimer.isRunning()) {
+					event.commit();
+					return;
+				}
+				draggedDisk = disk;
+				session.diskPressed();
+				disk.mouseX(e.getX() - disk.getX());
+				disk.mouseY(e.getY() - disk.getY());
+				towers[disk.towerIndex()].topDisk(inferiorDiskOf(disk));
+				repaintScreen(disk);
+				dragPipeline.start(disk, towers);
+				event.disk = disk.rank();
+				event.peg = disk.towerIndex();
+				event.commit();
+			}
+
+			@Override
+			public void mouseReleased(MouseEvent e){
+				if (draggedDisk == null) return;
+				GameEvents.DiskDrop event = new GameEvents.DiskDrop();
+				event.begin();
+				dragPipeline.stop();
+				Disk disk = draggedDisk;
+				draggedDisk = null;
+				int nextTowerIndex = layout.dropTarget(e.getX(), e.getY());
+				int from = disk.towerIndex(), rank = disk.rank();
+				if (nextTowerIndex != -1 && nextTowerIndex != from){
+					if (!playMove(from, nextTowerIndex, "mouse", 0)){
+						towers[disk.towerIndex()].topDisk(disk);
+						disk.relocateDisk();
+					}else {
+						event.legal = true;
+					}
+				}else {
+					towers[disk.towerIndex()].topDisk(disk);
+					disk.relocateDisk();
+				}
+				repaintScreen(null);
+				event.disk = rank;
+				event.from = from;
+				event.to = nextTowerIndex;
+				event.commit();
+				// Keys typed during the drag were kept for after the drop.
+				if (keyMoveCount > 0) applyKeyMoves();
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e) {
+				if (draggedDisk == null) return;
+				dragPipeline.post(e.getX() - draggedDisk.mouseX(), e.getY() - draggedDisk.mouseY());
+			}
+
+			@Override
+			public void mouseMoved(MouseEvent e) {
+				Disk disk = boardCanvas.diskAt(e.getX(), e.getY());
+				boardCanvas.setCursor(disk != null && disk.isTop() ? HAND_CURSOR : DEFAULT_CURSOR);
+			}
+		};
+		boardCanvas.addMouseListener(handler);
+		boardCanvas.addMouseMotionListener(handler);
 	}
 
     /**
-     * Repaints the screen to reflect changed game state.
-     * @param draggedDisk the disk currently being dragged by the mouse
+     * Binds Ctrl+Z to undo and Ctrl+Y or Ctrl+Shift+Z to redo. The bindings
+     * live on the root pane, so they survive screen changes.
      */
-    public void repaintScreen(Disk draggedDisk) {
-		removeGameComponents();
-		if (draggedDisk != null) mainPanel.add(draggedDisk);
+    private void installHistoryKeys() {
+		InputMap keys = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+		ActionMap actions = getRootPane().getActionMap();
+		keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo");
+		keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "redo");
+		keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK), "redo");
+		actions.put("undo", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				undoMove();
+			}
+		});
+		actions.put("redo", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				redoMove();
+			}
+		});
+    }
 
-        for (int i = 0; i < 3; i++) {
-			mainPanel.add(towers[i]);
+    /**
+     * Binds the digit keys, on the main keyboard and the keypad, to the pegs:
+     * 1 is the first peg. A move is typed as its source peg then its
+     * destination peg; typing the same peg twice or Escape drops the source.
+     */
+    private void installMoveKeys() {
+		InputMap keys = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+		ActionMap actions = getRootPane().getActionMap();
+		for (int peg = 0; peg < Math.min(pegCount, 9); peg++) {
+			int p = peg;
+			keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_1 + peg, 0), "peg" + peg);
+			keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_NUMPAD1 + peg, 0), "peg" + peg);
+			actions.put("peg" + peg, new AbstractAction() {
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					pegTyped(p);
+				}
+			});
 		}
-        for (int i = disks.size() - 1; 0 <= i; i--) {
-			if (draggedDisk != null && i == disks.indexOf(draggedDisk)) continue;
-			mainPanel.add(disks.get(i));
+		keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "dropPeg");
+		actions.put("dropPeg", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				selectedPeg = -1;
+			}
+		});
+    }
+
+    /**
+     * A move typed on the keyboard.
+     *
+     * @param from the source peg.
+     * @param to the destination peg.
+     * @param typedNanos the {@link System#nanoTime()} the move was typed.
+     */
+    /**
+     * Takes a typed peg: the first of a pair is kept as the source, the
+     * second queues the move. The first move of a burst posts one drain on
+     * the event queue, so keys already waiting there join the same board
+     * update, and Swing coalesces the repaints to the display rate. A full
+     * queue is drained at once.
+     *
+     * @param peg the typed peg.
+     */
+    private void pegTyped(int peg) {
+		if (screen != 2) return;
+		if (selectedPeg == -1) {
+			selectedPeg = peg;
+			return;
 		}
+		int from = selectedPeg;
+		selectedPeg = -1;
+		if (from == peg) return;
+		if (keyMoveCount == KEY_MOVE_CAPACITY) applyKeyMoves();
+		if (keyMoveCount == KEY_MOVE_CAPACITY) return; // Still dragging: the move is dropped.
+		int slot = (keyMoveHead + keyMoveCount++) % KEY_MOVE_CAPACITY;
+		keyMoves[slot] = from << 8 | peg;
+		keyMoveNanos[slot] = System.nanoTime();
+		if (!keyMovesPosted) {
+			keyMovesPosted = true;
+			SwingUtilities.invokeLater(this::applyKeyMoves);
+		}
+    }
+
+    /**
+     * Plays the queued keyboard moves in order, rejecting the illegal ones,
+     * then repaints the board once. Moves wait while a disk is dragged and
+     * are dropped while the auto-solver plays or once the game is won.
+     */
+    private void applyKeyMoves() {
+		keyMovesPosted = false;
+		if (draggedDisk != null) return;
+		if (screen != 2 || autoSolveTimer.isRunning()) {
+			keyMoveCount = 0;
+			return;
+		}
+		boolean played = false;
+		while (keyMoveCount > 0) {
+			int move = keyMoves[keyMoveHead];
+			long typedNanos = keyMoveNanos[keyMoveHead];
+			keyMoveHead = (keyMoveHead + 1) % KEY_MOVE_CAPACITY;
+			keyMoveCount--;
+			played |= playMove(move >> 8, move & 0xFF, "keyboard", typedNanos);
+			if (screen != 2) {
+				keyMoveCount = 0;
+				return;
+			}
+		}
+		if (played) repaintScreen(null);
+    }
+
+    /**
+     * Binds F3 to showing and hiding the performance overlay, on every screen.
+     */
+    private void installOverlayKey() {
+		getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "perfOverlay");
+		getRootPane().getActionMap().put("perfOverlay", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				perfOverlay.toggle();
+			}
+		});
+    }
+
+    /**
+     * Takes back the last move. The reverse move is recorded in the replay
+     * like any other move, and journaled as an undo so a resumed game keeps
+     * its move count. It is not checked against the rules, see {@link RuleVariant}.
+     */
+    private void undoMove() {
+		if (boardLocked()) return;
+		GameEvents.Move event = new GameEvents.Move();
+		event.begin();
+		int move = history.undo(engine);
+		if (move == Moves.NONE) return;
+		replayRecorder.record(Moves.to(move), Moves.from(move), session.clock().elapsedMillis(), engine);
+		historyChanged();
+		sessionStore.undo(Moves.to(move), Moves.from(move), engine, session);
+		commitMoveEvent(event, "undo", Moves.disk(move), Moves.to(move), Moves.from(move));
+    }
+
+    /**
+     * Plays again the last undone move.
+     */
+    private void redoMove() {
+		if (boardLocked()) return;
+		GameEvents.Move event = new GameEvents.Move();
+		event.begin();
+		int move = history.redo(engine);
+		if (move == Moves.NONE) return;
+		replayRecorder.record(Moves.from(move), Moves.to(move), session.clock().elapsedMillis(), engine);
+		historyChanged();
+		sessionStore.move(Moves.from(move), Moves.to(move), engine, session);
+		commitMoveEvent(event, "redo", Moves.disk(move), Moves.from(move), Moves.to(move));
+		checkWinCondition();
+    }
+
+    /**
+     * Jumps to a move of the timeline. While the slider is dragged only the
+     * board is updated; the new position is saved once it is released.
+     *
+     * @param move the move number shown by the timeline.
+     * @param save whether to store the position in the replay and the saved game.
+     */
+    private void seekMove(int move, boolean save) {
+		if (boardLocked()) return;
+		long k = Math.clamp(move - historyBase, history.first(), history.end());
+		if (k != history.position()) {
+			history.seek(k, engine);
+			historyChanged();
+		}
+		if (!save) return;
+		replayRecorder.restore(engine);
+		sessionStore.save(engine, session);
+		checkWinCondition();
+    }
+
+    /**
+     * Checks whether the board ignores undo, redo and timeline jumps, because
+     * no game is shown, a disk is dragged or the auto-solver is playing.
+     *
+     * @return true if the board cannot be changed by the history.
+     */
+    private boolean boardLocked() {
+		return screen != 2 || draggedDisk != null || autoSolveTimer.isRunning();
+    }
+
+    /**
+     * Adds the auto-solve button and its speed slider at the bottom of the game
+     * screen. The slider is logarithmic, from 1 to 10 million moves per second.
+     *
+     * @param panel the game screen.
+     */
+    private void paintAutoSolvePanel(JPanel panel) {
+		JPanel autoPanel = new JPanel();
+		autoPanel.setLayout(null);
+		autoPanel.setOpaque(false);
+
+		autoSolveBtn = new RoundedBtn("Auto-solve", 120, 32, 15, new Color(154, 205, 50), Color.DARK_GRAY);
+		autoSolveBtn.setFont(AssetRegistry.font(Font.PLAIN, 14));
+		autoSolveBtn.setBounds(0, 0, 120, 32);
+		autoSolveBtn.addActionListener(_ -> {
+			if (autoSolveTimer.isRunning()) finishAutoSolve();
+			else startAutoSolve();
+		});
+
+		speedSlider = new JSlider(0, 70, 10);
+		speedSlider.setOpaque(false);
+		speedSlider.setFocusable(false);
+		speedSlider.setBounds(130, 0, 300, 32);
+		speedSlider.addChangeListener(_ -> {
+			autoSolver.setRate(autoSolveRate());
+			speedLabel.setText(String.format("%,.0f moves/s", autoSolveRate()));
+		});
+
+		speedLabel = new JLabel(String.format("%,.0f moves/s", autoSolveRate()));
+		speedLabel.setFont(AssetRegistry.font(Font.PLAIN, 14));
+		speedLabel.setForeground(Color.DARK_GRAY);
+		speedLabel.setBounds(440, 0, 160, 32);
+
+		autoPanel.setBounds((SCREEN_SIZE.width - 600) / 2, SCREEN_SIZE.height - 60, 600, 32);
+		autoPanel.add(autoSolveBtn);
+		autoPanel.add(speedSlider);
+		autoPanel.add(speedLabel);
+		panel.add(autoPanel);
+    }
+
+    private double autoSolveRate() {
+		return Math.pow(10, speedSlider.getValue() / 10.0);
+    }
+
+    /**
+     * Starts playing the optimal solution from the current board.
+     */
+    private void startAutoSolve() {
+		if (boardLocked() || !AutoSolver.supports(engine, session.rules())) return;
+		autoSolved = true;
+		autoSolveBase = session.moveCount();
+		autoSolveShown = 0;
+		autoSolver.start(engine, session.rules(), autoSolveRate());
+		autoSolveTimer.start();
+		autoSolveBtn.setText("Stop");
+		undoBtn.setEnabled(false);
+		redoBtn.setEnabled(false);
+		timeline.setEnabled(false);
+    }
+
+    /**
+     * Shows the latest board published by the auto-solver. Runs once per
+     * display frame, so the moves played in between are never drawn.
+     */
+    private void showAutoSolveFrame() {
+		boolean finished = autoSolver.isFinished();
+		showAutoSolveBoard();
+		if (finished) finishAutoSolve();
+    }
+
+    /**
+     * Moves the disks to the latest board published by the auto-solver, if it changed.
+     */
+    private void showAutoSolveBoard() {
+		long played = autoSolver.read(autoSolvePegs);
+		if (played != autoSolveShown) {
+			autoSolveShown = played;
+			engine.setPegs(autoSolvePegs);
+			session.rewind((int) Math.min(Integer.MAX_VALUE, autoSolveBase + played));
+			movesLabel.setText("Moves " + session.moveCount());
+			distanceTracker.changed();
+			refreshDistanceLabel();
+			syncViews();
+			for (Disk disk : disks) disk.relocateDisk();
+			repaintScreen(null);
+		}
+    }
+
+    /**
+     * Stops the auto-solver and checks whether it solved the game.
+     */
+    private void finishAutoSolve() {
+		stopAutoSolve();
+		checkWinCondition();
+    }
+
+    /**
+     * Stops the auto-solver, keeping the last board it published. The history
+     * restarts from that board, which is stored like a timeline jump.
+     */
+    private void stopAutoSolve() {
+		if (!autoSolveTimer.isRunning()) return;
+		autoSolver.stop();
+		autoSolveTimer.stop();
+		showAutoSolveBoard();
+		autoSolveBtn.setText("Auto-solve");
+		timeline.setEnabled(true);
+		history.reset(engine);
+		historyBase = session.moveCount();
+		refreshTimeline();
+		replayRecorder.restore(engine);
+		sessionStore.save(engine, session);
+    }
+
+    /**
+     * Brings the disks, the move count and the timeline in line with a board
+     * set by the history.
+     */
+    private void historyChanged() {
+		session.rewind(historyBase + (int) history.position());
+		movesLabel.setText("Moves " + session.moveCount());
+		distanceTracker.changed();
+		refreshDistanceLabel();
+		syncViews();
+		for (Disk disk : disks) disk.relocateDisk();
+		repaintScreen(null);
+		refreshTimeline();
+    }
+
+    /**
+     * Updates the range and position of the timeline and the undo and redo buttons.
+     */
+    private void refreshTimeline() {
+		timelineUpdating = true;
+		timeline.setMinimum(historyBase + (int) history.first());
+		timeline.setMaximum(historyBase + (int) history.end());
+		if (!timeline.getValueIsAdjusting()) timeline.setValue(historyBase + (int) history.position());
+		timelineUpdating = false;
+		undoBtn.setEnabled(history.canUndo());
+		redoBtn.setEnabled(history.canRedo());
+    }
+
+    /**
+     * Repaints the board to reflect changed game state.
+     * @param draggedDisk the disk currently being dragged by the mouse, drawn above the rest of the board
+     */
+    public void repaintScreen(Disk draggedDisk) {
+		GameEvents.RepaintScreen event = new GameEvents.RepaintScreen();
+		event.begin();
+		boardCanvas.lift(draggedDisk);
+		event.liftedDisk = draggedDisk == null ? -1 : draggedDisk.rank();
+		event.commit();
 	}
 
     /**
      * Displays the start screen.
      */
 	private void displayStartScreen() {
-		screen = 0;
-		mainPanel.removeAll();
-		paintCloseBtn();
+		showScreen(0);
+	}
+
+    /**
+     * Builds the start screen.
+     *
+     * @param screenPanel the empty start screen.
+     */
+	private void buildStartScreen(JPanel screenPanel) {
+		paintCloseBtn(screenPanel);
 
 		JPanel panel = new JPanel();
 		panel.setLayout(null);
 		panel.setOpaque(false);
 		
         JLabel header = new JLabel("Hanoi Towers");
-        header.setFont(new Font("Arial", Font.BOLD, 120));
+        header.setFont(AssetRegistry.font(Font.BOLD, 120));
 		header.setForeground(Color.DARK_GRAY);
         header.setAlignmentX(Component.CENTER_ALIGNMENT);
 		
         RoundedBtn btn = new RoundedBtn("Start", 200, 80, 10, new Color(196, 164, 132), Color.DARK_GRAY);
-        btn.setFont(new Font("Arial", Font.PLAIN, 50));
+        btn.setFont(AssetRegistry.font(Font.PLAIN, 50));
         btn.setAlignmentX(Component.CENTER_ALIGNMENT);
 		btn.addActionListener(_ -> displayDifficultySelectionScreen());
 		
@@ -199,24 +795,29 @@ public class MyGraphics extends JFrame {
 		panel.add(header);
 		panel.add(btn);
 
-        mainPanel.add(panel);
-
-		mainPanel.revalidate();
-		mainPanel.repaint();
+        screenPanel.add(panel);
 	}
 
 	private void displayDifficultySelectionScreen() {
-		screen = 1;
-		mainPanel.removeAll();
-		paintCloseBtn();
-		paintBackBtn();
+		rulesBox.setSelectedItem(rules); // A resumed game may have changed the rules.
+		showScreen(1);
+	}
+
+    /**
+     * Builds the difficulty selection screen.
+     *
+     * @param screenPanel the empty difficulty selection screen.
+     */
+	private void buildDifficultySelectionScreen(JPanel screenPanel) {
+		paintCloseBtn(screenPanel);
+		paintBackBtn(screenPanel);
 
 		JPanel panel = new JPanel();
 		panel.setLayout(null);
 		panel.setOpaque(false);
 
 		JLabel label = new JLabel("Select the difficulty");
-		label.setFont(new Font("Arial", Font.BOLD, 120));
+		label.setFont(AssetRegistry.font(Font.BOLD, 120));
 		label.setForeground(Color.DARK_GRAY);
 		label.setAlignmentX(Component.CENTER_ALIGNMENT);
 
@@ -228,18 +829,58 @@ public class MyGraphics extends JFrame {
 		mediumButton.addActionListener(_ -> displayGameScreen(2));
 		RoundedBtn hardButton = new RoundedBtn("Hard", 200, 80, 10, new Color(189, 87, 87),  Color.DARK_GRAY);
 		hardButton.addActionListener(_ -> displayGameScreen(3));
+		RoundedBtn exhibitionButton = new RoundedBtn("Exhibition", 200, 80, 10, new Color(196, 164, 132), Color.DARK_GRAY);
+		JSpinner exhibitionDisksSpinner = new JSpinner(new SpinnerNumberModel(exhibitionDisks, 1, HanoiEngine.MAX_DISKS, 1));
+		exhibitionDisksSpinner.setFont(AssetRegistry.font(Font.PLAIN, 36));
+		exhibitionDisksSpinner.setToolTipText("Disks");
+		exhibitionButton.addActionListener(_ -> {
+			exhibitionDisks = (Integer) exhibitionDisksSpinner.getValue();
+			displayGameScreen(EXHIBITION);
+		});
 		
-		for (JButton button : new JButton[]{easyButton, mediumButton, hardButton}) {
-			button.setFont(new Font("Arial", Font.PLAIN, 50));
+		// The variants other than the classic rules are solved on three pegs only.
+		rulesBox = new JComboBox<>(RuleVariant.ALL.stream().filter(variant -> variant.supports(pegCount)).toArray(RuleVariant[]::new));
+		DefaultListCellRenderer names = new DefaultListCellRenderer();
+		rulesBox.setRenderer((list, variant, index, selected, focused) -> {
+			JLabel cell = (JLabel) names.getListCellRendererComponent(list, variant.name() + " rules", index, selected, focused);
+			cell.setToolTipText(variant.description());
+			return cell;
+		});
+		rulesBox.setFont(AssetRegistry.font(Font.PLAIN, 30));
+		rulesBox.setFocusable(false);
+		rulesBox.setEnabled(rulesBox.getItemCount() > 1);
+		rulesBox.setToolTipText(rules.description());
+		rulesBox.addActionListener(_ -> {
+			rules = (RuleVariant) rulesBox.getSelectedItem();
+			rulesBox.setToolTipText(rules.description());
+			randomStartBox.setEnabled(rules == RuleVariant.CLASSIC && pegCount == 3);
+		});
+
+		// Random starts are rated by the classic three-peg distance.
+		randomStartBox = new JCheckBox("Random start", randomStarts);
+		randomStartBox.setFont(AssetRegistry.font(Font.PLAIN, 30));
+		randomStartBox.setForeground(Color.DARK_GRAY);
+		randomStartBox.setOpaque(false);
+		randomStartBox.setFocusable(false);
+		randomStartBox.setToolTipText("Start new games from a random board, rated by its optimal distance");
+		randomStartBox.setEnabled(rules == RuleVariant.CLASSIC && pegCount == 3);
+		randomStartBox.addActionListener(_ -> randomStarts = randomStartBox.isSelected());
+
+		for (JButton button : new JButton[]{easyButton, mediumButton, hardButton, exhibitionButton}) {
+			button.setFont(AssetRegistry.font(Font.PLAIN, 50));
 			button.setAlignmentX(Component.CENTER_ALIGNMENT);
 		}
 
 		int panelWidth = label.getPreferredSize().width;
-		int panelHeight = label.getPreferredSize().height + 380; //Label size + 100gap + btn + 20gap + btn + 2gap + btn
+		int panelHeight = label.getPreferredSize().height + 580; //Label size + 100gap + btn + 20gap + btn + 20gap + btn + 20gap + btn + 40gap + rules
 
 		easyButton.setBounds((panelWidth - 200) / 2, label.getPreferredSize().height + 100, 200, 80);
 		mediumButton.setBounds((panelWidth - 200) / 2, label.getPreferredSize().height + 200, 200, 80);
 		hardButton.setBounds((panelWidth - 200) / 2, label.getPreferredSize().height + 300, 200, 80);
+		exhibitionButton.setBounds((panelWidth - 200) / 2, label.getPreferredSize().height + 400, 200, 80);
+		exhibitionDisksSpinner.setBounds((panelWidth + 200) / 2 + 20, label.getPreferredSize().height + 410, 100, 60);
+		rulesBox.setBounds((panelWidth - 320) / 2, label.getPreferredSize().height + 520, 320, 60);
+		randomStartBox.setBounds((panelWidth + 320) / 2 + 20, label.getPreferredSize().height + 520, 260, 60);
 
 		panel.setBounds((SCREEN_SIZE.width - panelWidth) / 2, (SCREEN_SIZE.height - panelHeight) / 2, panelWidth, panelHeight);
 
@@ -247,199 +888,305 @@ public class MyGraphics extends JFrame {
 		panel.add(easyButton);
 		panel.add(mediumButton);
 		panel.add(hardButton);
+		panel.add(exhibitionButton);
+		panel.add(exhibitionDisksSpinner);
+		panel.add(rulesBox);
+		panel.add(randomStartBox);
 		
-		mainPanel.add(panel);
-
-		mainPanel.revalidate();
-		mainPanel.repaint();
+		screenPanel.add(panel);
 	}
 
 	private void displayGameScreen(int difficulty) {
-        screen = 2;
-		mainPanel.removeAll();
-		paintCloseBtn();
-		paintBackBtn();
-		paintTopPanel();
+		displayGameScreen(difficulty, null);
+	}
 
-		this.difficulty = difficulty;
+    /**
+     * Builds the game screen. Its controls are kept from game to game; the
+     * board canvas draws whatever board is set on it.
+     *
+     * @param screenPanel the empty game screen.
+     */
+	private void buildGameScreen(JPanel screenPanel) {
+		paintCloseBtn(screenPanel);
+		paintBackBtn(screenPanel);
+		paintTopPanel(screenPanel);
+		// The canvas covers the whole screen, so it comes last to leave the controls on top of it.
+		paintAutoSolvePanel(screenPanel);
+		boardCanvas.setBounds(0, 0, SCREEN_SIZE.width, SCREEN_SIZE.height);
+		screenPanel.add(boardCanvas);
+	}
 
-		int maxDiskWidth = 180 + difficulty * 40;
-		int towerHeight = (difficulty*2+1) * 30 + 50;
+    /**
+     * Displays the game screen, either for a new game or resuming a saved one.
+     *
+     * @param difficulty the difficulty of the game.
+     * @param saved the saved game to resume, or null to start a new game.
+     */
+	private void displayGameScreen(int difficulty, SessionStore.Snapshot saved) {
+		this.difficulty = difficulty;
+		if (saved != null) rules = saved.rules();
+		boolean randomStart = saved != null ? saved.randomStart() : randomStarts && randomStartBox.isEnabled();
+		this.session = new GameSession(difficulty, rules, randomStart);
+		if (saved != null) session.restore(saved.moveCount(), saved.elapsedNanos());
+		autoSolved = false;
+		selectedPeg = -1;
+		keyMoveCount = 0;
 
-		int xGame = (SCREEN_SIZE.width - 103 - (maxDiskWidth * 3)) / 2;
-		int yGame = (SCREEN_SIZE.height - towerHeight - 30) / 2;
+		int totalDisk = saved != null ? saved.totalDisk() : diskCount(difficulty);
+		spriteCache.validate(totalDisk, SCREEN_SIZE);
+		Preloader.Board preloaded = Preloader.board(SCREEN_SIZE, pegCount, totalDisk);
+		if (preloaded != null) spriteCache.addAll(preloaded.sprites());
+		layout = preloaded != null ? preloaded.layout() : new BoardLayout(SCREEN_SIZE, pegCount, totalDisk);
+		DiskRenderer diskRenderer = new DiskRenderer(layout, spriteCache, rules);
 
-        for (int i = 0; i < 3; i++) {
-            towers[i] = new Tower(new Color(139, 90, 43), 64, towerHeight, xGame + (maxDiskWidth + 50) * i + (maxDiskWidth - 65) / 2, yGame, this);
+        for (int i = 0; i < towers.length; i++) {
+            towers[i] = new Tower(Tower.WOOD, BoardLayout.TOWER_DIAMETER, layout.towerHeight(), layout.towerX(i), layout.towerY(), i, this);
         }
 
         disks = new ArrayList<>();
-		int totalDisk = difficulty * 2 + 1;
+		engine.reset(totalDisk, 0);
+		if (saved != null) engine.setPegs(saved.pegs());
+		else if (randomStart) engine.setPegs(StartPool.take(totalDisk, startBand(difficulty)).pegs());
+		distanceTracker.reset(engine, rules);
+		session.optimalMoves(saved != null ? saved.optimalMoves() : distanceTracker.distance());
+		replayRecorder.beginGame(engine, difficulty);
+		sessionStore.save(engine, session);
+		history.reset(engine);
+		historyBase = session.moveCount();
+		refreshTimeline();
+		movesLabel.setText("Moves " + session.moveCount());
+		if (randomStart) rulesLabel.setText("Random start, rated " + Long.toUnsignedString(session.optimalMoves()) + " optimal moves");
+		else rulesLabel.setText(rules == RuleVariant.CLASSIC ? "" : rules.name() + " rules: " + rules.description());
+		refreshDistanceLabel();
         for (int i = totalDisk; i > 0 ; i--) {
-			Disk disk = new Disk(diskColor[totalDisk - i], 30, 180 + i * 20, this);
-			inferiorDisk[totalDisk - i] = totalDisk == i ? null : disks.get(totalDisk - i - 1);
+			Disk disk = new Disk(i - 1, diskRenderer, this);
 			disks.add(disk);
-			disk.isTop(false);
-			disk.relocateDisk(towers[0].getBounds().x + 1, yGame + towerHeight + 15);//(int)((double)diskHeight*COSINE)
-			if (i == 1){
-				disk.isTop(true);
-				towers[0].topDisk(disk);
-			}
-			disk.addMouseListener(new MouseAdapter() {
-				@Override
-				public void mousePressed(MouseEvent e) {
-					if (!disk.isTop())return;
-					disk.mouseX(e.getX());
-					disk.mouseY(e.getY());
-					towers[disk.towerIndex()].topDisk(inferiorDiskOf(disk));
-					repaintScreen(diskByDiameter(disk.diskDiameter()));
-				}
-
-				@Override
-				public void mouseReleased(MouseEvent e){
-					if (!disk.isTop())return;
-					Tower nextTower = null;
-					int nextTowerIndex = -1;
-					for (int i = 0; i < 3; i++){
-						if (i == disk.towerIndex()) continue;
-						Rectangle towerBounds = towers[i].getBounds();
-						int mouseX = disk.getX() + e.getX();
-						int mouseY = disk.getY() + e.getY();
-						if (towerBounds.x <= mouseX && mouseX <= towerBounds.x + towerBounds.width && towerBounds.y <= mouseY && mouseY <= towerBounds.y + towerBounds.height){
-							nextTower = towers[i];
-							nextTowerIndex = i;
-							break;
-						}
-					}
-					int towerHeight = totalDisk() * 30 + 50;
-					int yGame = (MyGraphics.SCREEN_SIZE.height - towerHeight - 30) / 2;
-					if (nextTower != null){
-						if (nextTower.topDisk() != null && nextTower.topDisk().diskDiameter() < disk.diskDiameter()){
-							towers[disk.towerIndex()].topDisk(disk);
-							disk.relocateDisk(towers[disk.towerIndex()].getBounds().x + 1, yGame + towerHeight + 15);
-						}else {
-							if (nextTower.topDisk() != null)
-								nextTower.topDisk().isTop(false);
-							if (indexOfInferiorDiskOf(disk) != -1) 
-								disks.get(indexOfInferiorDiskOf(disk)).isTop(true);
-							disk.towerIndex(nextTowerIndex);
-							inferiorDisk[indexOfDisk(disk)] = nextTower.topDisk();
-							nextTower.topDisk(disk);
-							disk.relocateDisk(nextTower.getBounds().x + 1, yGame + towerHeight + 15);
-							incrementMoves();
-						}
-					}else {
-						towers[disk.towerIndex()].topDisk(disk);
-						disk.relocateDisk(towers[disk.towerIndex()].getBounds().x + 1, yGame + towerHeight + 15);
-					}
-					repaintScreen(null);
-				}
-			});
-
-			disk.addMouseMotionListener(new MouseMotionAdapter() {
-				@Override
-				public void mouseDragged(MouseEvent e) {
-					if (!disk.isTop())return;
-					int newX = disk.getX() + e.getX() - disk.mouseX();
-					int newY = disk.getY() + e.getY() - disk.mouseY();
-					Dimension size = disk.getPreferredSize();
-					disk.setBounds(newX, newY, size.width, size.height);
-					disk.getParent().repaint();
-				}
-			});
+			disk.relocateDisk();
         }
 
-		repaintScreen(null);
-
-        mainPanel.revalidate();
-        mainPanel.repaint();
+		boardCanvas.setBoard(towers, disks, diskRenderer);
+		syncViews();
+		autoSolveBtn.setEnabled(AutoSolver.supports(engine, rules));
+		showScreen(2);
 
         // Start the game timer
         startTimer();
     }
 
+    /**
+     * Returns the number of disks of a new game.
+     *
+     * @param difficulty the difficulty of the game.
+     * @return the disk count.
+     */
+    private int diskCount(int difficulty) {
+		return difficulty == EXHIBITION ? exhibitionDisks : difficulty * 2 + 1;
+    }
+
+    /**
+     * Returns the distance band a random start is dealt from. Each difficulty
+     * takes one band of the upper half of the ratings, so the largest disk
+     * always has to move: easy games start nearest to the goal, exhibition
+     * boards farthest from it.
+     *
+     * @param difficulty the difficulty of the game.
+     * @return the band, see {@link StartPool#band}.
+     */
+    private static int startBand(int difficulty) {
+		return StartPool.BANDS / 2 + difficulty - 1;
+    }
+
+    /**
+     * Starts the session clock and the Swing timer refreshing its label. The label
+     * reads the clock, so a late tick never loses time.
+     */
     private void startTimer() {
-        elapsedSeconds = 0;
-        gameTimer = new Timer();
-        gameTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                SwingUtilities.invokeLater(() -> {
-                    elapsedSeconds++;
-                    int minutes = elapsedSeconds / 60;
-                    int seconds = elapsedSeconds % 60;
-                    timerLabel.setText(String.format("Time %02d:%02d", minutes, seconds));
-					movesLabel.setText("Moves " + moveCount);
-                });
-            }
-        }, 1000, 1000);
+		session.start();
+		shownSeconds = -1;
+		refreshTimerLabel();
+		clockTimer.start();
     }
 
     private void stopTimer() {
-        if (gameTimer != null) {
-            gameTimer.cancel();
-        }
+		clockTimer.stop();
+		if (session != null) session.stop();
     }
 
-    private void incrementMoves() {
-        moveCount++;
-		movesLabel.setText("Moves " + moveCount);
+    /**
+     * Updates the timer label when the displayed second changes.
+     */
+    private void refreshTimerLabel() {
+		long millis = session.clock().elapsedMillis();
+		if (millis / 1000 == shownSeconds) return;
+		shownSeconds = millis / 1000;
+		timerLabel.setText("Time " + GameClock.format(millis, false));
+    }
+
+    /**
+     * Counts a committed move, journals it and updates the labels and the timeline.
+     *
+     * @param from the source tower.
+     * @param to the destination tower.
+     * @param typed whether the move was typed on the keyboard rather than dragged.
+     */
+    private void incrementMoves(int from, int to, boolean typed) {
+		if (typed) session.moveTyped();
+		else session.moveCommitted();
+		sessionStore.move(from, to, engine, session);
+		refreshTimeline();
+		movesLabel.setText("Moves " + session.moveCount());
+		distanceTracker.moved(engine.topDisk(to));
+		refreshDistanceLabel();
+    }
+
+    /**
+     * Plays a move of the mouse or the keyboard if the rules of the game allow it:
+     * moves the disk, records it in the replay and the history, counts it
+     * and checks whether it wins the game. The board is not repainted.
+     *
+     * @param from the source tower.
+     * @param to the destination tower.
+     * @param source mouse or keyboard, for the flight recorder.
+     * @param offeredNanos when a keyboard move was typed, or 0.
+     * @return true if the move was played, false if it was illegal.
+     */
+    private boolean playMove(int from, int to, String source, long offeredNanos) {
+		GameEvents.Move event = new GameEvents.Move();
+		event.begin();
+		if (offeredNanos != 0) event.queueWait = System.nanoTime() - offeredNanos;
+		int rank = engine.topDisk(from);
+		if (!session.rules().canMove(engine, from, to)) return false;
+		engine.move(from, to);
+		syncViews();
+		disks.get(totalDisk() - 1 - rank).relocateDisk();
+		replayRecorder.record(from, to, session.clock().elapsedMillis(), engine);
+		history.record(rank, from, to, engine);
+		incrementMoves(from, to, offeredNanos != 0);
+		commitMoveEvent(event, source, rank, from, to);
 		checkWinCondition();
+		return true;
+    }
+
+    /**
+     * Fills in and commits the flight recorder event of a committed move.
+     *
+     * @param event the event, begun before the move was handled.
+     * @param source mouse, keyboard, undo or redo.
+     * @param disk the moved disk.
+     * @param from the source tower.
+     * @param to the destination tower.
+     */
+    private void commitMoveEvent(GameEvents.Move event, String source, int disk, int from, int to) {
+		if (!event.shouldCommit()) return;
+		event.source = source;
+		event.disk = disk;
+		event.from = from;
+		event.to = to;
+		event.moveCount = session.moveCount();
+		event.commit();
+    }
+
+    /**
+     * Shows the moves left to an optimal finish and the efficiency of the game so far.
+     */
+    private void refreshDistanceLabel() {
+		if (!distanceTracker.isKnown()) {
+			distanceLabel.setText("Optimal left ?");
+			distanceLabel.setToolTipText(DISTANCE_TIP);
+			return;
+		}
+		double efficiency = distanceTracker.efficiency(session.moveCount(), session.optimalMoves());
+		distanceLabel.setText(String.format("Optimal left %s   Efficiency %.1f%%", Long.toUnsignedString(distanceTracker.distance()), efficiency * 100));
+		int hint = distanceTracker.bestMove();
+		distanceLabel.setToolTipText(hint == Moves.NONE ? DISTANCE_TIP
+				: DISTANCE_TIP + ". Hint: rod " + (Moves.from(hint) + 1) + " to rod " + (Moves.to(hint) + 1));
     }
 
     private void checkWinCondition() {
-        if (towers[2].isCompleteTower(disks.size())) {
+        if (session.rules().isSolved(engine)) {
             for (int i = 0; i < disks.size(); i++) disks.get(i).isTop(false);
 			stopTimer();
+			replayRecorder.endGame(session.clock().elapsedMillis(), true);
+			sessionStore.clear();
             displayWinScreen();
         }
     }
 	
+    /**
+     * Displays the win screen with the results of the game just won.
+     */
     private void displayWinScreen() {
-		screen = 3;
-		remove(mainPanel);
-		mainPanel.removeAll();
 		if (disks != null) disks.clear();
-		for(int i = 0; i < 3; i++) towers[i] = null;
-		mainPanel = new JPanel();
-        mainPanel.setLayout(null);
-        mainPanel.setOpaque(true);
-		mainPanel.setBackground(new Color(215, 196, 183));
-		mainPanel.setBounds(0, 0, this.getPreferredSize().width, this.getPreferredSize().height);
-		add(mainPanel);
-		mainPanel.repaint();
-		System.out.println("you win");
-		paintCloseBtn();
+		for (int i = 0; i < towers.length; i++) towers[i] = null;
+
+		// Games finished by the auto-solver are not ranked, nor random starts, which are not comparable with each other.
+		String rankText = autoSolved ? "Solved with auto-solve, not ranked"
+				: "Random start rated " + Long.toUnsignedString(session.optimalMoves()) + " optimal moves, not ranked";
+		if (!autoSolved && !session.randomStart()) {
+			ResultStore.Result result = new ResultStore.Result(new ResultStore.Category(difficulty, engine.totalDisk(), pegCount, session.rules()),
+					session.moveCount(), session.clock().elapsedMillis(), System.currentTimeMillis());
+			resultStore.add(result);
+			ResultStore.Standing byMoves = resultStore.standing(result, ResultStore.Order.MOVES);
+			ResultStore.Standing byTime = resultStore.standing(result, ResultStore.Order.TIME);
+			ResultStore.Result bestMoves = resultStore.best(result.category(), ResultStore.Order.MOVES);
+			ResultStore.Result bestTime = resultStore.best(result.category(), ResultStore.Order.TIME);
+			rankText = String.format("Rank %d of %d by moves (top %.0f%%, best %d)   Rank %d of %d by time (top %.0f%%, best %s)",
+					byMoves.rank(), byMoves.count(), byMoves.top(), bestMoves.moves(),
+					byTime.rank(), byTime.count(), byTime.top(), GameClock.format(bestTime.millis(), true));
+		}
+
+        LatencyHistogram think = session.thinkTimes(), drag = session.dragTimes();
+        winMovesLabel.setText("Moves: " + session.moveCount());
+        winTimeLabel.setText("Time " + GameClock.format(session.clock().elapsedMillis(), true));
+        winStatsLabel.setText(String.format("Think p50 %s  p90 %s  p99 %s   Drag p50 %s  p90 %s  p99 %s",
+				formatDuration(think.percentile(50)), formatDuration(think.percentile(90)), formatDuration(think.percentile(99)),
+				formatDuration(drag.percentile(50)), formatDuration(drag.percentile(90)), formatDuration(drag.percentile(99))));
+        winRankLabel.setText(rankText);
+		showScreen(3);
+    }
+
+    /**
+     * Builds the win screen. Its labels are laid out for one line each and
+     * filled in by {@link #displayWinScreen()}.
+     *
+     * @param screenPanel the empty win screen.
+     */
+    private void buildWinScreen(JPanel screenPanel) {
+		paintCloseBtn(screenPanel);
 
         // Etiqueta principal: "YOU WIN"
         JLabel winLabel = new JLabel("YOU WIN", SwingConstants.CENTER);
-        winLabel.setFont(new Font("Arial", Font.BOLD, 36));
+        winLabel.setFont(AssetRegistry.font(Font.BOLD, 36));
 		
         // Etiqueta Moves
-        JLabel winMovesLabel = new JLabel("Moves: " + moveCount, SwingConstants.CENTER);
-        winMovesLabel.setFont(new Font("Arial", Font.PLAIN, 24));
+        winMovesLabel = new JLabel("Moves: 0", SwingConstants.CENTER);
+        winMovesLabel.setFont(AssetRegistry.font(Font.PLAIN, 24));
 		
         // Etiqueta Time
-		int minutes = elapsedSeconds / 60;
-        int seconds = elapsedSeconds % 60;
-        JLabel winTimeLabel = new JLabel(String.format("Time %02d:%02d", minutes, seconds), SwingConstants.CENTER);
-        winTimeLabel.setFont(new Font("Arial", Font.PLAIN, 24));
+        winTimeLabel = new JLabel("Time " + GameClock.format(0, true), SwingConstants.CENTER);
+        winTimeLabel.setFont(AssetRegistry.font(Font.PLAIN, 24));
+
+        // Move timing percentiles
+        winStatsLabel = new JLabel("Think", SwingConstants.CENTER);
+        winStatsLabel.setFont(AssetRegistry.font(Font.PLAIN, 18));
+
+        // Rank among the results of the same difficulty, disks and pegs
+        winRankLabel = new JLabel("Rank", SwingConstants.CENTER);
+        winRankLabel.setFont(AssetRegistry.font(Font.PLAIN, 18));
 		
         // Botón Main Menu
         RoundedBtn winBtn = new RoundedBtn("Main Menu", 120, 40, 15, new Color(154, 205, 50), Color.DARK_GRAY);
-        winBtn.setFont(new Font("Arial", Font.PLAIN, 18));
+        winBtn.setFont(AssetRegistry.font(Font.PLAIN, 18));
         winBtn.setFocusPainted(false);
         winBtn.addActionListener(_ -> {
 			stopTimer();
-			moveCount = 0;
-			elapsedSeconds = 0;
+			session = null;
 			if (disks != null) disks.clear();
-			for (int i = 0; i < 3; i++) towers[i] = null;
-			for (int i = 0; i < 7; i++) inferiorDisk[i] = null;
+			for (int i = 0; i < towers.length; i++) towers[i] = null;
 			displayStartScreen();
         });
 		
-		int componentsHeight = winLabel.getPreferredSize().height + winBtn.getPreferredSize().height + winMovesLabel.getPreferredSize().height + winTimeLabel.getPreferredSize().height + 110;
+		int componentsHeight = winLabel.getPreferredSize().height + winBtn.getPreferredSize().height + winMovesLabel.getPreferredSize().height + winTimeLabel.getPreferredSize().height + winStatsLabel.getPreferredSize().height + winRankLabel.getPreferredSize().height + 150;
 		int xComponents = (SCREEN_SIZE.width - 600) / 2;
 		int yComponents = (SCREEN_SIZE.height - componentsHeight) / 2;
 		int padding = 0;
@@ -450,13 +1197,30 @@ public class MyGraphics extends JFrame {
 		winMovesLabel.setBounds(xComponents, yComponents + padding, 600, winMovesLabel.getPreferredSize().height);
 		padding += winMovesLabel.getPreferredSize().height + 20;
 		winTimeLabel.setBounds(xComponents, yComponents + padding, 600, winTimeLabel.getPreferredSize().height);
-		padding += winTimeLabel.getPreferredSize().height + 40;
+		padding += winTimeLabel.getPreferredSize().height + 20;
+		winStatsLabel.setBounds((SCREEN_SIZE.width - 900) / 2, yComponents + padding, 900, winStatsLabel.getPreferredSize().height);
+		padding += winStatsLabel.getPreferredSize().height + 20;
+		winRankLabel.setBounds((SCREEN_SIZE.width - 900) / 2, yComponents + padding, 900, winRankLabel.getPreferredSize().height);
+		padding += winRankLabel.getPreferredSize().height + 40;
         winBtn.setBounds((SCREEN_SIZE.width - winBtn.getPreferredSize().width) / 2, yComponents + padding, 120, 40);
 		
-		mainPanel.add(winLabel);		
-		mainPanel.add(winMovesLabel);
-		mainPanel.add(winTimeLabel);
-		mainPanel.add(winBtn);
+		screenPanel.add(winLabel);		
+		screenPanel.add(winMovesLabel);
+		screenPanel.add(winTimeLabel);
+		screenPanel.add(winStatsLabel);
+		screenPanel.add(winRankLabel);
+		screenPanel.add(winBtn);
+    }
+
+    /**
+     * Formats a move timing for the win screen.
+     *
+     * @param nanos the duration in nanoseconds.
+     * @return the duration in milliseconds below one second, else in seconds.
+     */
+    private static String formatDuration(long nanos) {
+		long millis = nanos / 1_000_000;
+		return millis < 1000 ? millis + " ms" : String.format("%.2f s", millis / 1000.0);
     }
 
     public int totalDisk() {
@@ -464,23 +1228,67 @@ public class MyGraphics extends JFrame {
     }
 
 	public Disk diskByDiameter(int diskDiameter){
-		for (int i = 0; i < totalDisk(); i++) if (disks.get(i).diskDiameter() == diskDiameter) return disks.get(i);
-		return null;
+		return BoardLookups.diskByDiameter(disks, diskDiameter);
 	}
 
 	public Disk inferiorDiskOf(Disk disk){
-		int index = indexOfInferiorDiskOf(disk);
-		return index == -1 ? null : disks.get(index);
+		return BoardLookups.inferiorDiskOf(engine, disks, disk);
 	}
 
 	public int indexOfInferiorDiskOf(Disk disk){
-		int index = (difficulty*2+1) - (disk.diskDiameter() - 180) / 20;
-		if (inferiorDisk[index] == null) return -1;
-		return indexOfDisk(inferiorDisk[index]);
+		return BoardLookups.indexOfInferiorDiskOf(engine, disks, disk);
 	}
 
 	public int indexOfDisk(Disk disk){
-		int index = (difficulty*2+1) - (disk.diskDiameter() - 180) / 20;
-		return index;
+		return totalDisk() - 1 - disk.rank();
+	}
+
+	/**
+	 * Returns the canvas drawing the game board.
+	 *
+	 * @return the board canvas.
+	 */
+	public BoardCanvas boardCanvas() {
+		return boardCanvas;
+	}
+
+	/**
+	 * Returns the cache of pre-rendered disk and tower sprites.
+	 *
+	 * @return the sprite cache.
+	 */
+	public SpriteCache spriteCache() {
+		return spriteCache;
+	}
+
+	/**
+	 * Returns the geometry of the current game board.
+	 *
+	 * @return the board layout.
+	 */
+	public BoardLayout boardLayout() {
+		return layout;
+	}
+
+	/**
+	 * Returns the headless engine holding the game state shown by this window.
+	 *
+	 * @return the game engine.
+	 */
+	public HanoiEngine engine() {
+		return engine;
+	}
+
+	/**
+	 * Refreshes the top disk of every tower and the top flag of every disk from the engine.
+	 */
+	private void syncViews() {
+		for (int i = 0; i < disks.size(); i++) disks.get(i).isTop(false);
+		for (int i = 0; i < towers.length; i++) {
+			int top = engine.topDisk(i);
+			Disk disk = top == -1 ? null : disks.get(totalDisk() - 1 - top);
+			if (disk != null) disk.isTop(true);
+			towers[i].topDisk(disk);
+		}
 	}
 }
@@ -0,0 +1,143 @@
+import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * PerfOverlay is a small panel drawn above every screen that shows, twice a
+ * second, how the event dispatch thread is doing:
+ * <ul>
+ * <li>board frames per second and the percentiles of their paint time,</li>
+ * <li>the latency of the event queue, measured by posting a probe every
+ * {@value #PROBE_MILLIS} ms from a background thread and timing how long
+ * it waits before it runs,</li>
+ * <li>the allocation rate of the whole JVM.</li>
+ * </ul>
+ * Nothing is sampled while the overlay is hidden: recording a frame is then
+ * one field read, and neither the probe thread nor the refresh timer runs.
+ * Every method must be called on the event dispatch thread.
+ */
+public class PerfOverlay extends JComponent {
+	static final int WIDTH = 460, HEIGHT = 78;
+	private static final int REFRESH_MILLIS = 500; // Period of the sample windows.
+	private static final int PROBE_MILLIS = 20; // Period of the event queue probes.
+	private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+	private static final LatencyHistogram FRAMES = new LatencyHistogram(); // Board paint times of the current window.
+	private static boolean sampling; // Whether frames are recorded.
+	private final LatencyHistogram queueLatency = new LatencyHistogram(); // Probe waits of the current window.
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private final Timer refreshTimer = new Timer(REFRESH_MILLIS, _ -> refresh());
+	private final String[] lines = {"", "", ""};
+	private ScheduledExecutorService prober; // Posts the event queue probes while the overlay is shown.
+	private long windowStart; // Start of the current sample window.
+	private long windowAllocated; // Bytes allocated by the JVM when the window started.
+
+	/**
+	 * Constructs a hidden overlay.
+	 */
+	public PerfOverlay() {
+		setOpaque(false);
+		setFocusable(false);
+		setSize(WIDTH, HEIGHT);
+		super.setVisible(false);
+	}
+
+	/**
+	 * Records the paint time of one board frame.
+	 *
+	 * @param nanos the time spent painting the board.
+	 */
+	public static void recordFrame(long nanos) {
+		if (sampling) FRAMES.record(nanos);
+	}
+
+	/**
+	 * Shows the overlay if it is hidden, hides it otherwise.
+	 */
+	public void toggle() {
+		setVisible(!isVisible());
+	}
+
+	/**
+	 * Shows or hides the overlay, starting or stopping the sampling with it.
+	 *
+	 * @param visible true to show the overlay.
+	 */
+	@Override
+	public void setVisible(boolean visible) {
+		if (visible == isVisible()) return;
+		super.setVisible(visible);
+		sampling = visible;
+		if (visible) {
+			startWindow();
+			lines[0] = "Sampling...";
+			lines[1] = lines[2] = "";
+			refreshTimer.start();
+			prober = Executors.newSingleThreadScheduledExecutor(task -> {
+				Thread thread = new Thread(task, "perf-overlay-probe");
+				thread.setDaemon(true);
+				return thread;
+			});
+			prober.scheduleAtFixedRate(this::probe, PROBE_MILLIS, PROBE_MILLIS, TimeUnit.MILLISECONDS);
+		} else {
+			refreshTimer.stop();
+			prober.shutdownNow();
+			prober = null;
+		}
+	}
+
+	/**
+	 * Posts a probe measuring how long the event queue makes it wait.
+	 */
+	private void probe() {
+		long posted = System.nanoTime();
+		EventQueue.invokeLater(() -> queueLatency.record(System.nanoTime() - posted));
+	}
+
+	/**
+	 * Closes the current sample window into the displayed lines and starts a new one.
+	 */
+	private void refresh() {
+		long now = System.nanoTime();
+		double seconds = (now - windowStart) / 1e9;
+		long allocated = threads.getTotalThreadAllocatedBytes();
+		lines[0] = String.format("FPS %.0f   paint p50 %s  p90 %s  p99 %s  max %s", FRAMES.count() / seconds,
+				millis(FRAMES.percentile(50)), millis(FRAMES.percentile(90)), millis(FRAMES.percentile(99)), millis(FRAMES.max()));
+		lines[1] = String.format("EDT queue p50 %s  p90 %s  p99 %s  max %s",
+				millis(queueLatency.percentile(50)), millis(queueLatency.percentile(90)), millis(queueLatency.percentile(99)), millis(queueLatency.max()));
+		lines[2] = allocated < 0 ? "Allocation rate unavailable" : String.format("Allocation %.1f MB/s", (allocated - windowAllocated) / seconds / 1e6);
+		startWindow();
+		repaint();
+	}
+
+	private void startWindow() {
+		FRAMES.clear();
+		queueLatency.clear();
+		windowStart = System.nanoTime();
+		windowAllocated = threads.getTotalThreadAllocatedBytes();
+	}
+
+	private static String millis(long nanos) {
+		return String.format("%.1f ms", nanos / 1e6);
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		Graphics2D g2 = (Graphics2D) g.create();
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g2.setColor(BACKGROUND);
+		g2.fillRoundRect(0, 0, getWidth(), getHeight(), 12, 12);
+		g2.setColor(Color.WHITE);
+		g2.setFont(AssetRegistry.font(Font.PLAIN, 13));
+		for (int i = 0; i < lines.length; i++) g2.drawString(lines[i], 10, 22 + i * 20);
+		g2.dispose();
+	}
+}
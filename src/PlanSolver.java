@@ -0,0 +1,119 @@
+/**
+ * PlanSolver streams the optimal moves of a three-peg variant whose
+ * solution follows a fixed plan: moving a tower of n disks between two pegs
+ * is a sequence of steps that each move either the largest disk of the
+ * tower or the tower of the n-1 smaller ones, and the steps depend only on
+ * the two pegs. The plan is unrolled on an explicit stack holding, for each
+ * disk, the pegs of the tower moved at that depth and its next step, so no
+ * move recurses and a move costs constant time on average.
+ */
+final class PlanSolver implements RuleVariant.Solver {
+	static final int DISK = 16; // Step flag: the largest disk moves, not the smaller tower.
+	private final int[][] plan; // Steps of a tower move, indexed by source * 3 + destination.
+	private final int totalDisk;
+	private final long totalMoves; // Read as an unsigned long, saturated.
+	private final int[] pegs; // Source * 3 + destination of the tower moved at each depth.
+	private final int[] step; // Next step of the tower moved at each depth.
+	private int depth; // Top of the stack; depth d moves disks 0 to totalDisk-1-d.
+	private long remaining; // Moves left to stream.
+
+	/**
+	 * Constructs a solver that moves a complete tower between two pegs.
+	 *
+	 * @param plan the steps of a tower move for each pair of pegs, built with {@link #tower} and {@link #disk}.
+	 * @param totalDisk the number of disks of the tower.
+	 * @param from the peg holding the tower.
+	 * @param to the peg that should receive the tower.
+	 */
+	PlanSolver(int[][] plan, int totalDisk, int from, int to) {
+		if (totalDisk < 0 || totalDisk > HanoiEngine.MAX_DISKS)
+			throw new IllegalArgumentException("Unsupported disk count: " + totalDisk);
+		if (from == to || from < 0 || to < 0 || from > 2 || to > 2)
+			throw new IllegalArgumentException("Invalid pegs: " + from + ", " + to);
+		this.plan = plan;
+		this.totalDisk = totalDisk;
+		this.totalMoves = totalMoves(plan, totalDisk)[from * 3 + to];
+		this.pegs = new int[Math.max(1, totalDisk)];
+		this.step = new int[pegs.length];
+		this.pegs[0] = from * 3 + to;
+		this.depth = totalDisk == 0 ? -1 : 0;
+		this.remaining = totalMoves;
+	}
+
+	/**
+	 * Returns a step moving the tower of the smaller disks.
+	 *
+	 * @param from the source peg.
+	 * @param to the destination peg.
+	 * @return the step.
+	 */
+	static int tower(int from, int to) {
+		return from << 2 | to;
+	}
+
+	/**
+	 * Returns a step moving the largest disk of the tower.
+	 *
+	 * @param from the source peg.
+	 * @param to the destination peg.
+	 * @return the step.
+	 */
+	static int disk(int from, int to) {
+		return DISK | from << 2 | to;
+	}
+
+	/**
+	 * Counts the moves of a plan for every pair of pegs, one disk count at a time.
+	 */
+	private static long[] totalMoves(int[][] plan, int totalDisk) {
+		long[] moves = new long[9], next = new long[9];
+		for (int n = 1; n <= totalDisk; n++) {
+			for (int pair = 0; pair < 9; pair++) {
+				if (plan[pair] == null) continue;
+				long sum = 0;
+				for (int s : plan[pair]) {
+					long add = (s & DISK) != 0 ? 1 : moves[(s >> 2 & 3) * 3 + (s & 3)];
+					sum = Long.compareUnsigned(sum + add, sum) < 0 ? -1L : sum + add;
+				}
+				next[pair] = sum;
+			}
+			long[] swap = moves;
+			moves = next;
+			next = swap;
+		}
+		return moves;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return remaining != 0;
+	}
+
+	@Override
+	public int next() {
+		while (depth >= 0) {
+			int[] steps = plan[pegs[depth]];
+			if (step[depth] == steps.length) {
+				depth--;
+				continue;
+			}
+			int s = steps[step[depth]++];
+			int from = s >> 2 & 3, to = s & 3, disk = totalDisk - 1 - depth;
+			if ((s & DISK) != 0) {
+				remaining--;
+				return Moves.pack(disk, from, to);
+			}
+			if (disk > 0) {
+				depth++;
+				pegs[depth] = from * 3 + to;
+				step[depth] = 0;
+			}
+		}
+		return Moves.NONE;
+	}
+
+	@Override
+	public long totalMoves() {
+		return totalMoves;
+	}
+}
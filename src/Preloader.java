@@ -0,0 +1,101 @@
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Preloader does the slow startup work that does not need the event
+ * dispatch thread on a single low priority background thread. The assets
+ * are decoded while the window is being built; once the start screen is
+ * shown, the boards of the likely first games are laid out and their
+ * sprites drawn, so the first game screen only blits them.
+ * <p>
+ * A board is warmed into its own {@link SpriteCache}, never written again
+ * once published, and the game screen copies its sprites into the cache
+ * of the canvas. A board that is not ready yet is simply built on the
+ * event dispatch thread as before.
+ */
+public final class Preloader {
+	/**
+	 * A board prepared ahead of its game.
+	 *
+	 * @param layout the layout of the board.
+	 * @param sprites the sprites of its disks and towers.
+	 */
+	record Board(BoardLayout layout, SpriteCache sprites) {
+	}
+
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "preloader");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+	private static final Map<Long, Board> BOARDS = new ConcurrentHashMap<>(); // Keyed by board geometry.
+
+	private Preloader() {
+	}
+
+	/**
+	 * Starts decoding the icons and loading the fonts.
+	 */
+	public static void assets() {
+		EXECUTOR.execute(() -> {
+			AssetRegistry.preload();
+			StartupTrace.mark("assets preloaded");
+		});
+	}
+
+	/**
+	 * Starts preparing boards, in order.
+	 *
+	 * @param screenSize the size of the screen the boards are laid out on.
+	 * @param pegCount the number of pegs.
+	 * @param diskCounts the disk counts of the boards.
+	 */
+	public static void boards(Dimension screenSize, int pegCount, int... diskCounts) {
+		Dimension size = new Dimension(screenSize);
+		for (int totalDisk : diskCounts) {
+			EXECUTOR.execute(() -> {
+				long key = key(size, pegCount, totalDisk);
+				if (BOARDS.containsKey(key)) return;
+				BOARDS.put(key, warm(size, pegCount, totalDisk));
+				StartupTrace.mark("board of " + totalDisk + " disks preloaded");
+			});
+		}
+	}
+
+	/**
+	 * Returns a prepared board.
+	 *
+	 * @param screenSize the size of the screen the board is laid out on.
+	 * @param pegCount the number of pegs.
+	 * @param totalDisk the number of disks.
+	 * @return the board, or null if it is not ready.
+	 */
+	public static Board board(Dimension screenSize, int pegCount, int totalDisk) {
+		return BOARDS.get(key(screenSize, pegCount, totalDisk));
+	}
+
+	/**
+	 * Lays out a board and draws every sprite it needs into a fresh cache.
+	 */
+	private static Board warm(Dimension screenSize, int pegCount, int totalDisk) {
+		BoardLayout layout = new BoardLayout(screenSize, pegCount, totalDisk);
+		SpriteCache sprites = new SpriteCache();
+		sprites.validate(totalDisk, screenSize);
+		Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+		DiskRenderer diskRenderer = new DiskRenderer(layout, sprites);
+		for (int rank = 0; rank < totalDisk; rank++) diskRenderer.paint(g, rank, 0, 0);
+		new Tower(Tower.WOOD, BoardLayout.TOWER_DIAMETER, layout.towerHeight(), layout.towerX(0), layout.towerY(), 0, null).paint(g, sprites);
+		g.dispose();
+		return new Board(layout, sprites);
+	}
+
+	private static long key(Dimension screenSize, int pegCount, int totalDisk) {
+		return (long) screenSize.width << 40 | (long) screenSize.height << 16 | pegCount << 8 | totalDisk;
+	}
+}
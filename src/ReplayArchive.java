@@ -0,0 +1,379 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ReplayArchive reads a replay archive through a read-only memory mapping,
+ * so opening and scanning large archives never copies the file on the heap.
+ * Opening the archive scans it once to index where each game and each of
+ * its checkpoints start; a {@link Replay} then seeks to any move by loading
+ * the nearest checkpoint and decoding the few moves after it.
+ * <p>
+ * The file starts with the magic {@code HNRP}, followed by records. Every
+ * record starts with a varint {@code h}. An even {@code h} is a move whose
+ * {@code h >>> 1} equals {@code deltaMillis * pairCount + pairIndex}. An odd
+ * {@code h} is a control record of type {@code h >>> 1}:
+ * <ul>
+ * <li>{@link #GAME}: pegs, disks and difficulty bytes, then the start time as a long.</li>
+ * <li>{@link #CHECKPOINT}: varint move number, varint clock millis, then one long bitmask per peg.</li>
+ * <li>{@link #END}: varint total millis, varint move count, then a solved byte.</li>
+ * </ul>
+ * The recorder appends whole blocks, each ending with a checkpoint or an
+ * end record. Bytes after the last complete block were torn by a crash:
+ * readers ignore them and the recorder cuts them off before appending.
+ */
+public class ReplayArchive implements Closeable {
+	static final byte[] MAGIC = {'H', 'N', 'R', 'P'};
+	static final int GAME = 0, CHECKPOINT = 1, END = 2; // Control record types.
+	static final int CHECKPOINT_INTERVAL = 256; // Moves between two embedded boards.
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private int completeLength; // Bytes up to the end of the last complete block.
+	private int gameCount;
+	private long[] gameOffset = new long[64]; // Offset of the header of each game.
+	private long[] gameMoves = new long[64]; // Moves recorded in each game.
+	private long[] gameMillis = new long[64]; // Play time of each game, or -1 if unfinished.
+	private boolean[] gameSolved = new boolean[64]; // Whether each game was solved.
+	private int[] firstCheckpoint = new int[65]; // Index of the first checkpoint of each game, plus an end marker.
+	private int checkpointCount;
+	private long[] checkpointOffset = new long[256]; // Offset of each checkpoint record.
+	private long[] checkpointMove = new long[256]; // Move number of each checkpoint.
+
+	private ReplayArchive(FileChannel channel, ByteBuffer buffer) throws IOException {
+		this.channel = channel;
+		this.buffer = buffer;
+		index();
+	}
+
+	/**
+	 * Opens an archive and indexes its games.
+	 *
+	 * @param file the archive file.
+	 * @return the opened archive.
+	 * @throws IOException if the file cannot be read or is not an archive.
+	 */
+	public static ReplayArchive open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			if (channel.size() > Integer.MAX_VALUE) throw new IOException("Archive larger than 2 GiB, split it");
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new ReplayArchive(channel, mapped);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the length of an archive up to the end of its last complete
+	 * block. The file is read on the heap rather than mapped, so the caller
+	 * can truncate it right away on every platform.
+	 *
+	 * @param file the archive file.
+	 * @return the length to keep, at least the length of the magic.
+	 * @throws IOException if the file cannot be read or is not an archive.
+	 */
+	static long completeLength(Path file) throws IOException {
+		return new ReplayArchive(null, ByteBuffer.wrap(Files.readAllBytes(file))).completeLength;
+	}
+
+	/**
+	 * Returns the number of games in the archive.
+	 *
+	 * @return the game count.
+	 */
+	public int gameCount() {
+		return gameCount;
+	}
+
+	/**
+	 * Opens a cursor positioned at the start of a game.
+	 *
+	 * @param game the index of the game.
+	 * @return a cursor over the moves of the game.
+	 */
+	public Replay replay(int game) {
+		if (game < 0 || game >= gameCount) throw new IndexOutOfBoundsException("No game " + game);
+		return new Replay(game);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) channel.close();
+	}
+
+	/**
+	 * Scans the archive once, recording where games and checkpoints start. A
+	 * truncated record at the end of the file, left by a crash, ends the scan,
+	 * and a game whose first block is incomplete is dropped.
+	 */
+	private void index() throws IOException {
+		ByteBuffer in = buffer.duplicate();
+		byte[] magic = new byte[MAGIC.length];
+		if (in.remaining() < magic.length) throw new IOException("Not a replay archive");
+		in.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a replay archive");
+		completeLength = in.position();
+		int pegs = 0;
+		try {
+			while (in.hasRemaining()) {
+				int start = in.position();
+				long header = Varint.read(in);
+				if ((header & 1) == 0) {
+					if (gameCount == 0) throw new IOException("Move outside a game at " + start);
+					gameMoves[gameCount - 1]++;
+					continue;
+				}
+				switch ((int) (header >>> 1)) {
+					case GAME -> {
+						pegs = in.get();
+						in.get();
+						in.get();
+						in.getLong();
+						addGame(start);
+					}
+					case CHECKPOINT -> {
+						long move = Varint.read(in);
+						Varint.read(in);
+						in.position(in.position() + 8 * pegs);
+						if (in.position() > in.limit()) throw new BufferUnderflowException();
+						addCheckpoint(start, move);
+						completeLength = in.position();
+					}
+					case END -> {
+						gameMillis[gameCount - 1] = Varint.read(in);
+						Varint.read(in);
+						gameSolved[gameCount - 1] = in.get() != 0;
+						completeLength = in.position();
+					}
+					default -> throw new IOException("Unknown record " + (header >>> 1) + " at " + start);
+				}
+			}
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			// Truncated tail: keep the games indexed so far.
+		}
+		while (gameCount > 0 && gameOffset[gameCount - 1] >= completeLength) gameCount--;
+		firstCheckpoint[gameCount] = checkpointCount;
+	}
+
+	private void addGame(int offset) {
+		if (gameCount == gameOffset.length) {
+			int size = gameCount * 2;
+			gameOffset = Arrays.copyOf(gameOffset, size);
+			gameMoves = Arrays.copyOf(gameMoves, size);
+			gameMillis = Arrays.copyOf(gameMillis, size);
+			gameSolved = Arrays.copyOf(gameSolved, size);
+			firstCheckpoint = Arrays.copyOf(firstCheckpoint, size + 1);
+		}
+		gameOffset[gameCount] = offset;
+		gameMillis[gameCount] = -1;
+		firstCheckpoint[gameCount] = checkpointCount;
+		gameCount++;
+	}
+
+	private void addCheckpoint(int offset, long move) {
+		if (checkpointCount == checkpointOffset.length) {
+			checkpointOffset = Arrays.copyOf(checkpointOffset, checkpointCount * 2);
+			checkpointMove = Arrays.copyOf(checkpointMove, checkpointCount * 2);
+		}
+		checkpointOffset[checkpointCount] = offset;
+		checkpointMove[checkpointCount] = move;
+		checkpointCount++;
+	}
+
+	static long control(int type) {
+		return (long) type << 1 | 1;
+	}
+
+	static int pairCount(int pegs) {
+		return pegs * (pegs - 1);
+	}
+
+	static int pairIndex(int from, int to, int pegs) {
+		return from * (pegs - 1) + (to > from ? to - 1 : to);
+	}
+
+	/**
+	 * Replay is a cursor over the moves of one game, keeping the board they lead to.
+	 */
+	public final class Replay {
+		private final int game;
+		private final ByteBuffer in = buffer.duplicate(); // Private read position over the shared mapping.
+		private final int pegCount, totalDisk, difficulty;
+		private final long startMillis;
+		private final HanoiEngine board;
+		private final long[] pegs;
+		private long position; // Moves applied to the board.
+		private long clockMillis; // Game clock reading of the last applied move.
+
+		private Replay(int game) {
+			this.game = game;
+			in.position((int) gameOffset[game]);
+			Varint.read(in);
+			this.pegCount = in.get();
+			this.totalDisk = in.get();
+			this.difficulty = in.get();
+			this.startMillis = in.getLong();
+			this.board = new HanoiEngine(pegCount);
+			this.pegs = new long[pegCount];
+			seek(0);
+		}
+
+		/**
+		 * Moves the cursor so that exactly k moves are applied to the board.
+		 *
+		 * @param k the move number, from 0 to {@link #moveCount()}.
+		 */
+		public void seek(long k) {
+			if (k < 0 || k > gameMoves[game]) throw new IndexOutOfBoundsException("No move " + k);
+			int lo = firstCheckpoint[game], hi = firstCheckpoint[game + 1] - 1;
+			while (lo < hi) {
+				int mid = (lo + hi + 1) >>> 1;
+				if (checkpointMove[mid] <= k) lo = mid;
+				else hi = mid - 1;
+			}
+			in.position((int) checkpointOffset[lo]);
+			Varint.read(in);
+			position = Varint.read(in);
+			clockMillis = Varint.read(in);
+			for (int i = 0; i < pegCount; i++) pegs[i] = in.getLong();
+			board.reset(totalDisk, 0);
+			board.setPegs(pegs);
+			while (position < k) next();
+		}
+
+		/**
+		 * Checks whether the game has more moves after the cursor.
+		 *
+		 * @return true if another move is available, false otherwise.
+		 */
+		public boolean hasNext() {
+			return position < gameMoves[game];
+		}
+
+		/**
+		 * Applies the next move of the game to the board.
+		 *
+		 * @return the packed move, or {@link Moves#NONE} at the end of the game.
+		 */
+		public int next() {
+			if (!hasNext()) return Moves.NONE;
+			while (true) {
+				long header = Varint.read(in);
+				if ((header & 1) == 0) {
+					long payload = header >>> 1;
+					int pair = (int) (payload % pairCount(pegCount));
+					int from = pair / (pegCount - 1), to = pair % (pegCount - 1);
+					if (to >= from) to++;
+					int disk = board.topDisk(from);
+					if (!board.move(from, to)) throw new IllegalStateException("Illegal move in game " + game + " at " + position);
+					clockMillis += payload / pairCount(pegCount);
+					position++;
+					return Moves.pack(disk, from, to);
+				}
+				// A checkpoint repeats the board, or sets it when the player jumped on the timeline.
+				Varint.read(in);
+				Varint.read(in);
+				for (int i = 0; i < pegCount; i++) pegs[i] = in.getLong();
+				board.setPegs(pegs);
+			}
+		}
+
+		/**
+		 * Returns the board after the moves applied so far. It must not be modified.
+		 *
+		 * @return the board.
+		 */
+		public HanoiEngine board() {
+			return board;
+		}
+
+		/**
+		 * Returns the number of moves applied to the board.
+		 *
+		 * @return the cursor position.
+		 */
+		public long position() {
+			return position;
+		}
+
+		/**
+		 * Returns the game clock reading of the last applied move.
+		 *
+		 * @return the clock in milliseconds.
+		 */
+		public long clockMillis() {
+			return clockMillis;
+		}
+
+		/**
+		 * Returns the number of moves recorded in the game.
+		 *
+		 * @return the move count.
+		 */
+		public long moveCount() {
+			return gameMoves[game];
+		}
+
+		/**
+		 * Returns the total play time of the game.
+		 *
+		 * @return the time in milliseconds, or -1 if the game was not finished.
+		 */
+		public long elapsedMillis() {
+			return gameMillis[game];
+		}
+
+		/**
+		 * Checks whether the game ended with the tower complete.
+		 *
+		 * @return true if the game was solved, false otherwise.
+		 */
+		public boolean isSolved() {
+			return gameSolved[game];
+		}
+
+		/**
+		 * Returns the number of pegs of the game.
+		 *
+		 * @return the peg count.
+		 */
+		public int pegCount() {
+			return pegCount;
+		}
+
+		/**
+		 * Returns the number of disks of the game.
+		 *
+		 * @return the disk count.
+		 */
+		public int totalDisk() {
+			return totalDisk;
+		}
+
+		/**
+		 * Returns the difficulty the game was played at.
+		 *
+		 * @return the difficulty.
+		 */
+		public int difficulty() {
+			return difficulty;
+		}
+
+		/**
+		 * Returns the wall-clock time the game started at.
+		 *
+		 * @return the start time in epoch milliseconds.
+		 */
+		public long startMillis() {
+			return startMillis;
+		}
+	}
+}
@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReplayRecorder appends games to a binary replay archive. Every record
+ * starts with a varint whose low bit tells moves from control records. A
+ * move packs its (from, to) pair index and the milliseconds since the
+ * previous move into that single varint, so most moves take one to three
+ * bytes. A checkpoint holding the whole board is embedded every
+ * {@link ReplayArchive#CHECKPOINT_INTERVAL} moves so readers can seek
+ * without replaying from the start. The layout is described in
+ * {@link ReplayArchive}.
+ * <p>
+ * Records are buffered until the next checkpoint, then the completed block
+ * is handed to a background writer thread that appends and flushes it, so
+ * the event dispatch thread never touches the file. A crash loses at most
+ * the moves since the last checkpoint; the archive reader keeps a game
+ * without an end record as unfinished, and the next recorder cuts off a
+ * block torn by the crash before it appends.
+ */
+public class ReplayRecorder {
+	private final Path file;
+	private final BlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+	private ByteBuffer buffer = ByteBuffer.allocate(4096); // Records since the last completed block.
+	private final long[] pegs = new long[HanoiEngine.MAX_PEGS]; // Scratch board for checkpoints.
+	private int pegCount; // Pegs of the game in progress, 0 when no game is recorded.
+	private long moveCount; // Moves recorded in the game in progress.
+	private long lastMillis; // Game clock reading of the previous move.
+
+	private sealed interface Op permits Append, Barrier {
+	}
+
+	private record Append(ByteBuffer block) implements Op {
+	}
+
+	private record Barrier(CountDownLatch done) implements Op {
+	}
+
+	/**
+	 * Constructs a recorder appending to the given archive, and starts its writer thread.
+	 *
+	 * @param file the archive file, created on the first append, or null to discard games.
+	 */
+	public ReplayRecorder(Path file) {
+		this.file = file;
+		if (file == null) return;
+		Thread writer = new Thread(this::runWriter, "replay-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Starts recording a game from the current board of an engine.
+	 *
+	 * @param engine the engine holding the initial board.
+	 * @param difficulty the difficulty of the game.
+	 */
+	public void beginGame(HanoiEngine engine, int difficulty) {
+		buffer.clear();
+		pegCount = engine.pegCount();
+		moveCount = 0;
+		lastMillis = 0;
+		Varint.write(buffer, ReplayArchive.control(ReplayArchive.GAME));
+		buffer.put((byte) pegCount).put((byte) engine.totalDisk()).put((byte) difficulty);
+		buffer.putLong(System.currentTimeMillis());
+		checkpoint(engine);
+	}
+
+	/**
+	 * Records a committed move.
+	 *
+	 * @param from the source peg.
+	 * @param to the destination peg.
+	 * @param elapsedMillis the game clock reading when the move was made.
+	 * @param engine the engine holding the board after the move.
+	 */
+	public void record(int from, int to, long elapsedMillis, HanoiEngine engine) {
+		if (pegCount == 0) return;
+		ensureCapacity(Varint.MAX_BYTES);
+		long delta = Math.max(0, elapsedMillis - lastMillis);
+		lastMillis = elapsedMillis;
+		int pair = ReplayArchive.pairIndex(from, to, pegCount);
+		Varint.write(buffer, (delta * ReplayArchive.pairCount(pegCount) + pair) << 1);
+		moveCount++;
+		if (moveCount % ReplayArchive.CHECKPOINT_INTERVAL == 0) checkpoint(engine);
+	}
+
+	/**
+	 * Records that the board was set without a move, for instance by a jump
+	 * on the timeline. The board is embedded as a checkpoint, which readers
+	 * load when they reach it.
+	 *
+	 * @param engine the engine holding the new board.
+	 */
+	public void restore(HanoiEngine engine) {
+		if (pegCount == 0) return;
+		checkpoint(engine);
+	}
+
+	/**
+	 * Ends the game in progress and appends its last block to the archive.
+	 *
+	 * @param elapsedMillis the total play time.
+	 * @param solved whether the game ended with the tower complete.
+	 */
+	public void endGame(long elapsedMillis, boolean solved) {
+		if (pegCount == 0) return;
+		ensureCapacity(3 * Varint.MAX_BYTES);
+		Varint.write(buffer, ReplayArchive.control(ReplayArchive.END));
+		Varint.write(buffer, elapsedMillis);
+		Varint.write(buffer, moveCount);
+		buffer.put((byte) (solved ? 1 : 0));
+		pegCount = 0;
+		ship();
+	}
+
+	/**
+	 * Waits until every completed block is on disk, for instance before exiting.
+	 *
+	 * @param timeoutMillis the longest time to wait.
+	 */
+	public void flush(long timeoutMillis) {
+		if (file == null) return;
+		CountDownLatch done = new CountDownLatch(1);
+		queue.add(new Barrier(done));
+		try {
+			done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Hands the buffered records to the writer as a completed block.
+	 */
+	private void ship() {
+		if (file != null) queue.add(new Append(ByteBuffer.wrap(Arrays.copyOf(buffer.array(), buffer.position()))));
+		buffer.clear();
+	}
+
+	private void runWriter() {
+		FileChannel channel = null;
+		while (true) {
+			try {
+				Op op = queue.take();
+				boolean dirty = false;
+				while (op != null) {
+					switch (op) {
+						case Append a -> {
+							if (channel == null) channel = openForAppend();
+							ByteBuffer block = a.block();
+							while (block.hasRemaining()) channel.write(block);
+							dirty = true;
+						}
+						case Barrier b -> {
+							if (dirty) channel.force(false);
+							dirty = false;
+							b.done().countDown();
+						}
+					}
+					op = queue.poll();
+				}
+				if (dirty) channel.force(false);
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				System.err.println("Could not save replay: " + e.getMessage());
+				// Reopen on the next block, which cuts off any partly written one.
+				try {
+					if (channel != null) channel.close();
+				} catch (IOException _) {
+					// Already failing: the error above was reported.
+				}
+				channel = null;
+			}
+		}
+	}
+
+	/**
+	 * Opens the archive positioned after its last complete block. Bytes
+	 * after it, torn by a crash during an append, are cut off first so the
+	 * new games do not follow a partial record.
+	 */
+	private FileChannel openForAppend() throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			long size = channel.size();
+			long end = size < ReplayArchive.MAGIC.length ? 0 : ReplayArchive.completeLength(file);
+			if (end < size) channel.truncate(end);
+			if (end == 0) channel.write(ByteBuffer.wrap(ReplayArchive.MAGIC), 0);
+			channel.position(channel.size());
+			return channel;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Appends a checkpoint, which completes a block.
+	 */
+	private void checkpoint(HanoiEngine engine) {
+		ensureCapacity(3 * Varint.MAX_BYTES + 8 * pegCount);
+		engine.copyPegs(pegs);
+		Varint.write(buffer, ReplayArchive.control(ReplayArchive.CHECKPOINT));
+		Varint.write(buffer, moveCount);
+		Varint.write(buffer, lastMillis);
+		for (int i = 0; i < pegCount; i++) buffer.putLong(pegs[i]);
+		ship();
+	}
+
+	private void ensureCapacity(int bytes) {
+		if (buffer.remaining() >= bytes) return;
+		ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+		buffer.flip();
+		grown.put(buffer);
+		buffer = grown;
+	}
+}
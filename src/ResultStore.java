@@ -0,0 +1,361 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResultStore keeps the results of won games, grouped by category
+ * (difficulty, disks, pegs and rules). Each category has two index files, one
+ * sorted by moves then time and one by time then moves, holding fixed
+ * 16-byte entries: the sort key and the wall-clock time of the game. Ranks
+ * and percentiles are answered with a binary search over the file and top-K
+ * reads only the first K entries, so no query loads the whole history.
+ * <p>
+ * New results are queued and merged into the index files by a background
+ * writer, which waits up to {@link #BATCH_MILLIS} to merge several results
+ * in one pass. Queries also count the results still queued, so a result is
+ * ranked as soon as it is added. A merge that fails is retried
+ * {@link #MERGE_ATTEMPTS} times in all, then its results are dropped.
+ */
+public class ResultStore {
+	static final int ENTRY_BYTES = 16; // Sort key and wall-clock time.
+	static final int BATCH_MILLIS = 500; // Longest wait for more results before a merge.
+	static final int MERGE_ATTEMPTS = 3; // Tries of a merge before its results are dropped.
+	static final int RETRY_MILLIS = 100; // Pause before the first retry.
+	private static final long MAX_FIELD = 0xFFFFFFFFL; // Largest moves or millis a key can hold.
+	private final Path directory;
+	private final BlockingQueue<Result> queue = new LinkedBlockingQueue<>();
+	private final List<Result> pending = new ArrayList<>(); // Results not merged yet, guarded by this.
+
+	/**
+	 * The games comparable with each other.
+	 *
+	 * @param difficulty the difficulty.
+	 * @param disks the number of disks.
+	 * @param pegs the number of pegs.
+	 * @param rules the rules the games were played under.
+	 */
+	public record Category(int difficulty, int disks, int pegs, RuleVariant rules) {
+	}
+
+	/**
+	 * The result of a won game.
+	 *
+	 * @param category the category of the game.
+	 * @param moves the moves played.
+	 * @param millis the play time.
+	 * @param epochMillis the wall-clock time the game ended at.
+	 */
+	public record Result(Category category, int moves, long millis, long epochMillis) {
+		/**
+		 * Returns the sort key of the result in an index.
+		 *
+		 * @param order the index.
+		 * @return the key, lower is better.
+		 */
+		public long key(Order order) {
+			long moves = Math.min(this.moves, MAX_FIELD), millis = Math.min(this.millis, MAX_FIELD);
+			return order == Order.MOVES ? moves << 32 | millis : millis << 32 | moves;
+		}
+	}
+
+	/**
+	 * The position of a result among the results of its category.
+	 *
+	 * @param rank the rank, 1 for the best result.
+	 * @param count the number of results of the category.
+	 * @param percentile the share of the other results this one is strictly better than, from 0 to 100.
+	 */
+	public record Standing(long rank, long count, double percentile) {
+		/**
+		 * Returns the share of the category at or above this rank, so the
+		 * best of ten results is in the top 10% and the only result in the
+		 * top 100%.
+		 *
+		 * @return the share, from above 0 to 100.
+		 */
+		public double top() {
+			return 100.0 * rank / count;
+		}
+	}
+
+	/**
+	 * The orders results are indexed by.
+	 */
+	public enum Order {
+		MOVES, TIME
+	}
+
+	/**
+	 * Constructs a store over a directory and starts its writer thread.
+	 *
+	 * @param directory the directory of the index files, or null to keep results in memory only.
+	 */
+	public ResultStore(Path directory) {
+		this.directory = directory;
+		Thread writer = new Thread(this::runWriter, "result-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Adds a result; it is written to the index files in the background.
+	 *
+	 * @param result the result.
+	 */
+	public synchronized void add(Result result) {
+		pending.add(result);
+		queue.add(result);
+	}
+
+	/**
+	 * Waits until every added result is merged into the index files, for instance before exiting.
+	 *
+	 * @param timeoutMillis the longest time to wait.
+	 */
+	public synchronized void flush(long timeoutMillis) {
+		if (directory == null) return;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		try {
+			for (long wait = timeoutMillis; !pending.isEmpty() && wait > 0; wait = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) {
+				wait(wait);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the position of a result that was added to the store.
+	 *
+	 * @param result the result.
+	 * @param order the order to rank by.
+	 * @return the rank, result count and percentile.
+	 */
+	public synchronized Standing standing(Result result, Order order) {
+		long key = result.key(order);
+		long count = 0, better = 0, worse = 0;
+		for (Result r : pending) {
+			if (!r.category().equals(result.category())) continue;
+			long other = r.key(order);
+			count++;
+			if (other < key) better++;
+			else if (other > key) worse++;
+		}
+		try (FileChannel index = openIndex(result.category(), order)) {
+			if (index != null) {
+				long size = index.size() / ENTRY_BYTES;
+				count += size;
+				better += countBelow(index, size, key);
+				worse += size - countBelow(index, size, key + 1);
+			}
+		} catch (IOException e) {
+			System.err.println("Could not read results: " + e.getMessage());
+		}
+		double percentile = count <= 1 ? 100 : 100.0 * worse / (count - 1);
+		return new Standing(better + 1, count, percentile);
+	}
+
+	/**
+	 * Returns the best results of a category.
+	 *
+	 * @param category the category.
+	 * @param order the order to rank by.
+	 * @param k the number of results wanted.
+	 * @return up to k results, best first.
+	 */
+	public synchronized List<Result> top(Category category, Order order, int k) {
+		List<Result> best = new ArrayList<>(k);
+		try (FileChannel index = openIndex(category, order)) {
+			if (index != null) {
+				long size = Math.min(k, index.size() / ENTRY_BYTES);
+				ByteBuffer in = ByteBuffer.allocate((int) size * ENTRY_BYTES);
+				readFully(index, in, 0);
+				while (in.remaining() >= ENTRY_BYTES) best.add(decode(category, order, in.getLong(), in.getLong()));
+			}
+		} catch (IOException e) {
+			System.err.println("Could not read results: " + e.getMessage());
+		}
+		for (Result r : pending) if (r.category().equals(category)) best.add(r);
+		best.sort((a, b) -> Long.compare(a.key(order), b.key(order)));
+		return best.size() > k ? new ArrayList<>(best.subList(0, k)) : best;
+	}
+
+	/**
+	 * Returns the best result of a category.
+	 *
+	 * @param category the category.
+	 * @param order the order to rank by.
+	 * @return the best result, or null if the category has none.
+	 */
+	public Result best(Category category, Order order) {
+		List<Result> best = top(category, order, 1);
+		return best.isEmpty() ? null : best.get(0);
+	}
+
+	/**
+	 * Counts the entries of a sorted index whose key is lower than a key.
+	 */
+	private static long countBelow(FileChannel index, long size, long key) throws IOException {
+		ByteBuffer entry = ByteBuffer.allocate(8);
+		long lo = 0, hi = size;
+		while (lo < hi) {
+			long mid = (lo + hi) >>> 1;
+			entry.clear();
+			readFully(index, entry, mid * ENTRY_BYTES);
+			if (entry.getLong() < key) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Fills a buffer from a position of a file and flips it.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Truncated index");
+		}
+		buffer.flip();
+	}
+
+	private static Result decode(Category category, Order order, long key, long epochMillis) {
+		long high = key >>> 32, low = key & MAX_FIELD;
+		return order == Order.MOVES ? new Result(category, (int) high, low, epochMillis) : new Result(category, (int) low, high, epochMillis);
+	}
+
+	private FileChannel openIndex(Category category, Order order) throws IOException {
+		if (directory == null) return null;
+		try {
+			return FileChannel.open(indexFile(category, order), StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	private Path indexFile(Category category, Order order) {
+		return directory.resolve("results-" + category.rules().name().toLowerCase() + "-" + category.difficulty() + "-" + category.disks() + "-" + category.pegs() + "-" + order.name().toLowerCase() + ".idx");
+	}
+
+	private void runWriter() {
+		List<Result> batch = new ArrayList<>();
+		while (true) {
+			try {
+				batch.add(queue.take());
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_MILLIS);
+				Result next;
+				while ((next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) != null) batch.add(next);
+
+				if (directory != null) { // Otherwise results stay pending, in memory.
+					Map<Category, List<Result>> byCategory = new HashMap<>();
+					for (Result r : batch) byCategory.computeIfAbsent(r.category(), _ -> new ArrayList<>()).add(r);
+					for (Map.Entry<Category, List<Result>> e : byCategory.entrySet()) publish(e.getKey(), e.getValue());
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Merges the results of a category into both of its indexes, retrying a
+	 * failed merge after a growing pause. Results that still cannot be saved
+	 * are dropped from pending, so {@link #flush(long)} does not wait for them.
+	 */
+	private void publish(Category category, List<Result> results) throws InterruptedException {
+		boolean[] published = new boolean[Order.values().length]; // An index already holding the results is not merged again.
+		for (int attempt = 1; ; attempt++) {
+			try {
+				Path[] merged = new Path[published.length];
+				for (Order order : Order.values()) {
+					if (!published[order.ordinal()]) merged[order.ordinal()] = merge(category, order, results);
+				}
+				// Publishing the merged files and dropping the results from pending is atomic for queries.
+				synchronized (this) {
+					for (Order order : Order.values()) {
+						if (published[order.ordinal()]) continue;
+						Files.move(merged[order.ordinal()], indexFile(category, order), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+						published[order.ordinal()] = true;
+					}
+					dropPending(results);
+				}
+				return;
+			} catch (IOException e) {
+				if (attempt == MERGE_ATTEMPTS) {
+					System.err.println("Could not save results: " + e.getMessage());
+					dropPending(results);
+					return;
+				}
+				Thread.sleep((long) RETRY_MILLIS << (attempt - 1));
+			}
+		}
+	}
+
+	private synchronized void dropPending(List<Result> results) {
+		for (Result r : results) pending.remove(r);
+		notifyAll();
+	}
+
+	/**
+	 * Merges new results into an index, streaming the old index into a new
+	 * file next to it.
+	 *
+	 * @return the new file, to be moved over the index.
+	 */
+	private Path merge(Category category, Order order, List<Result> results) throws IOException {
+		long[] keys = new long[results.size()], times = new long[results.size()];
+		Integer[] sorted = new Integer[results.size()];
+		for (int i = 0; i < sorted.length; i++) sorted[i] = i;
+		Arrays.sort(sorted, (a, b) -> Long.compare(results.get(a).key(order), results.get(b).key(order)));
+		for (int i = 0; i < sorted.length; i++) {
+			keys[i] = results.get(sorted[i]).key(order);
+			times[i] = results.get(sorted[i]).epochMillis();
+		}
+
+		Path target = indexFile(category, order);
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		ByteBuffer in = ByteBuffer.allocate(64 * 1024), out = ByteBuffer.allocate(64 * 1024);
+		in.flip();
+		try (FileChannel old = openIndex(category, order);
+				FileChannel merged = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			int next = 0;
+			while (true) {
+				if (in.remaining() < ENTRY_BYTES && old != null) {
+					in.compact();
+					old.read(in);
+					in.flip();
+				}
+				boolean hasOld = in.remaining() >= ENTRY_BYTES;
+				if (!hasOld && next == keys.length) break;
+				if (out.remaining() < ENTRY_BYTES) drain(out, merged);
+				if (hasOld && (next == keys.length || in.getLong(in.position()) <= keys[next])) out.putLong(in.getLong()).putLong(in.getLong());
+				else {
+					out.putLong(keys[next]).putLong(times[next]);
+					next++;
+				}
+			}
+			drain(out, merged);
+			merged.force(true);
+		}
+		return temp;
+	}
+
+	private static void drain(ByteBuffer out, FileChannel channel) throws IOException {
+		out.flip();
+		while (out.hasRemaining()) channel.write(out);
+		out.clear();
+	}
+}
@@ -56,6 +56,8 @@ public class RoundedBtn extends JButton {
      */
 	@Override
 	protected void paintComponent(Graphics g) {
+		GameEvents.Paint event = new GameEvents.Paint();
+		event.begin();
 		Graphics2D g2 = (Graphics2D) g.create();
 		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 		g2.setColor(getBackground());
@@ -78,6 +80,9 @@ public class RoundedBtn extends JButton {
 		}
 
 		g2.dispose();
+		event.component = "RoundedBtn";
+		event.text = getText();
+		event.commit();
 	}
 
     /**
@@ -0,0 +1,123 @@
+import java.awt.Color;
+import java.util.List;
+
+/**
+ * RuleVariant is a set of rules of the puzzle: which moves are legal, how a
+ * tower is moved optimally, and how the disks are colored. Every variant
+ * forbids at least what the classic rules forbid, so a board played under
+ * any variant is a classic board, and replays, saved games and the engine
+ * itself work unchanged.
+ * <p>
+ * {@link #canMove} is called on every drop and keyboard move, so it must
+ * answer in constant time from the peg bitmasks of the board. Undo is
+ * exempt from it: taking a move back restores a board that was already
+ * reached under the rules, even when the reverse move is not itself legal,
+ * as with the counterclockwise moves of {@link #CYCLIC}.
+ */
+public interface RuleVariant {
+	RuleVariant CLASSIC = new ClassicRules();
+	RuleVariant CYCLIC = new CyclicRules();
+	RuleVariant ADJACENT = new AdjacentRules();
+	RuleVariant BICOLOR = new BicolorRules();
+	List<RuleVariant> ALL = List.of(CLASSIC, CYCLIC, ADJACENT, BICOLOR); // Order is stored in saved games; only append.
+
+	/**
+	 * Streams the optimal moves of a complete tower, one at a time.
+	 */
+	interface Solver {
+		/**
+		 * Checks whether the stream has more moves.
+		 *
+		 * @return true if another move is available, false otherwise.
+		 */
+		boolean hasNext();
+
+		/**
+		 * Streams the next move.
+		 *
+		 * @return the packed move, or {@link Moves#NONE} once the tower is moved.
+		 */
+		int next();
+
+		/**
+		 * Returns the length of the whole solution.
+		 *
+		 * @return the number of moves, to be read as an unsigned long.
+		 */
+		long totalMoves();
+	}
+
+	/**
+	 * Returns the name of the variant, shown on the difficulty screen and used in file names.
+	 *
+	 * @return the name.
+	 */
+	String name();
+
+	/**
+	 * Returns a one-line summary of the rules.
+	 *
+	 * @return the description.
+	 */
+	String description();
+
+	/**
+	 * Checks whether the variant can be played with a number of pegs.
+	 *
+	 * @param pegCount the number of pegs.
+	 * @return true if the rules and the solver cover that board.
+	 */
+	boolean supports(int pegCount);
+
+	/**
+	 * Checks whether the top disk of a peg may be moved onto another peg.
+	 *
+	 * @param board the board.
+	 * @param from the source peg.
+	 * @param to the destination peg.
+	 * @return true if the move is legal, false otherwise.
+	 */
+	boolean canMove(HanoiEngine board, int from, int to);
+
+	/**
+	 * Checks whether a board is won under the rules.
+	 *
+	 * @param board the board.
+	 * @return true once the complete tower stands on the last peg.
+	 */
+	default boolean isSolved(HanoiEngine board) {
+		return board.isSolved(board.pegCount() - 1);
+	}
+
+	/**
+	 * Returns the optimal solution moving a complete tower between two pegs of a three-peg board.
+	 *
+	 * @param totalDisk the number of disks of the tower.
+	 * @param from the peg holding the tower.
+	 * @param to the peg that should receive the tower.
+	 * @return the solution, streamed without recursion.
+	 */
+	Solver solver(int totalDisk, int from, int to);
+
+	/**
+	 * Returns the color of a disk.
+	 *
+	 * @param index the position of the disk from the largest one.
+	 * @return the color, from the procedural palette unless the rules depend on colors.
+	 */
+	default Color diskColor(int index) {
+		return DiskRenderer.color(index);
+	}
+
+	/**
+	 * Finds a variant by name.
+	 *
+	 * @param name the name of the variant, in any case.
+	 * @return the variant.
+	 * @throws IllegalArgumentException if no variant has that name.
+	 */
+	static RuleVariant named(String name) {
+		for (RuleVariant rules : ALL) if (rules.name().equalsIgnoreCase(name)) return rules;
+		throw new IllegalArgumentException("Unknown rules: " + name);
+	}
+}
@@ -0,0 +1,85 @@
+import java.awt.CardLayout;
+import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.Graphics;
+import javax.swing.JPanel;
+
+/**
+ * ScreenManager holds every screen of the window, each built once, and
+ * shows one at a time. Switching screens only flips which card is visible:
+ * no component is created or removed, so a transition costs one repaint.
+ */
+public class ScreenManager extends JPanel {
+	private final CardLayout cards = new CardLayout();
+	private final Color background;
+	private String current; // Name of the visible screen.
+	private Runnable firstPaint; // Run once the first frame is painted, then cleared.
+
+	/**
+	 * Constructs an empty screen manager.
+	 *
+	 * @param background the background color of every screen.
+	 */
+	public ScreenManager(Color background) {
+		this.background = background;
+		setLayout(cards);
+		setBackground(background);
+	}
+
+	/**
+	 * Creates a screen, empty and laid out by absolute positions, and adds it
+	 * under a name.
+	 *
+	 * @param name the name the screen is shown by.
+	 * @return the screen, for its components to be added.
+	 */
+	public JPanel addScreen(String name) {
+		JPanel screen = new JPanel();
+		screen.setLayout(null);
+		screen.setOpaque(true);
+		screen.setBackground(background);
+		add(screen, name);
+		if (current == null) current = name;
+		return screen;
+	}
+
+	/**
+	 * Shows a screen and hides the visible one.
+	 *
+	 * @param name the name of the screen.
+	 */
+	public void show(String name) {
+		if (name.equals(current)) return;
+		current = name;
+		cards.show(this, name);
+	}
+
+	/**
+	 * Sets a task to run on the event dispatch thread once the screens have
+	 * been painted for the first time.
+	 *
+	 * @param task the task.
+	 */
+	public void onFirstPaint(Runnable task) {
+		firstPaint = task;
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		super.paintComponent(g);
+		if (firstPaint != null) {
+			// Queued so that it runs after the painted frame reaches the screen.
+			EventQueue.invokeLater(firstPaint);
+			firstPaint = null;
+		}
+	}
+
+	/**
+	 * Returns the name of the visible screen.
+	 *
+	 * @return the screen name.
+	 */
+	public String current() {
+		return current;
+	}
+}
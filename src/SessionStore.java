@@ -0,0 +1,311 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * SessionStore keeps the game in progress on disk so it survives the back
+ * button, closing the window and power loss. The state is a small binary
+ * snapshot of the board plus an append-only journal of the moves played
+ * since that snapshot. Resuming loads the snapshot and replays only the
+ * journal tail; every {@link #COMPACT_INTERVAL} moves a new snapshot is
+ * written and the journal starts over.
+ * <p>
+ * All file operations run on a background writer thread, so the event
+ * dispatch thread only enqueues them. The writer drains whatever is queued
+ * and lingers up to {@link #BATCH_MILLIS} for more moves before a single
+ * fsync, so bursts of moves share one disk flush.
+ * <p>
+ * Snapshots are replaced atomically and carry a generation number. Journal
+ * records carry the generation of the snapshot they extend and a checksum,
+ * so a stale journal or a record torn by a crash is ignored on resume.
+ */
+public class SessionStore {
+	static final byte[] MAGIC = {'H', 'N', 'S', 'S'};
+	static final int VERSION = 1;
+	static final int COMPACT_INTERVAL = 128; // Journal records before a new snapshot.
+	static final int BATCH_MILLIS = 20; // Longest wait for more moves before an fsync.
+	private static final int RECORD_BYTES = 16; // Generation, from, to, count, padding, millis, checksum.
+	private final Path snapshotFile, journalFile;
+	private final BlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+	private int generation; // Generation of the last snapshot, touched on the EDT only.
+	private int journalRecords; // Moves journaled since that snapshot, touched on the EDT only.
+	private long lastJournalMillis; // Clock of the last journal record replayed by load.
+	private int journalMoves; // Net move count of the journal records replayed by load.
+
+	/**
+	 * A saved game: the board and the progress needed to resume it.
+	 *
+	 * @param difficulty the difficulty of the game.
+	 * @param rules the rules of the game.
+	 * @param randomStart whether the game started from a random board.
+	 * @param optimalMoves the length of an optimal game from the start board, unsigned.
+	 * @param totalDisk the number of disks.
+	 * @param moveCount the moves played so far.
+	 * @param elapsedNanos the time played so far.
+	 * @param pegs one bitmask of disks per peg.
+	 */
+	public record Snapshot(int difficulty, RuleVariant rules, boolean randomStart, long optimalMoves, int totalDisk, int moveCount, long elapsedNanos, long[] pegs) {
+	}
+
+	private sealed interface Op permits Write, Append, Clear, Barrier {
+	}
+
+	private record Write(int generation, Snapshot snapshot) implements Op {
+	}
+
+	private record Append(int generation, int from, int to, int count, long elapsedNanos) implements Op {
+	}
+
+	private record Clear() implements Op {
+	}
+
+	private record Barrier(CountDownLatch done) implements Op {
+	}
+
+	/**
+	 * Constructs a store and starts its writer thread.
+	 *
+	 * @param snapshotFile the snapshot file, or null to keep nothing.
+	 * @param journalFile the journal file.
+	 */
+	public SessionStore(Path snapshotFile, Path journalFile) {
+		this.snapshotFile = snapshotFile;
+		this.journalFile = journalFile;
+		Thread writer = new Thread(this::runWriter, "session-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Loads the saved game, replaying the journal over the snapshot. Only
+	 * meant to be called at startup, before any game is stored.
+	 *
+	 * @param pegCount the peg count of the running game, a save for other pegs is ignored.
+	 * @return the saved game, or null if there is none or it is unreadable.
+	 */
+	public Snapshot load(int pegCount) {
+		if (snapshotFile == null) return null;
+		try {
+			ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+			byte[] magic = new byte[MAGIC.length];
+			in.get(magic);
+			if (!Arrays.equals(magic, MAGIC) || in.get() != VERSION || in.get() != pegCount) return null;
+			if (checksum(in.array(), 0, in.limit() - 4) != in.getInt(in.limit() - 4)) return null;
+			int totalDisk = in.get(), difficulty = in.get();
+			RuleVariant rules = RuleVariant.ALL.get(in.get());
+			boolean randomStart = in.get() != 0;
+			int snapshotGeneration = in.getInt();
+			int moveCount = in.getInt();
+			long elapsedNanos = in.getLong();
+			long optimalMoves = in.getLong();
+			long[] pegs = new long[pegCount];
+			for (int i = 0; i < pegCount; i++) pegs[i] = in.getLong();
+
+			HanoiEngine engine = new HanoiEngine(pegCount);
+			engine.reset(totalDisk, 0);
+			engine.setPegs(pegs);
+			int replayed = replayJournal(engine, snapshotGeneration);
+			if (replayed > 0) {
+				moveCount += journalMoves;
+				elapsedNanos = Math.max(elapsedNanos, lastJournalMillis * 1_000_000);
+				engine.copyPegs(pegs);
+			}
+			generation = snapshotGeneration;
+			return new Snapshot(difficulty, rules, randomStart, optimalMoves, totalDisk, moveCount, elapsedNanos, pegs);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Could not resume saved game: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Applies the valid records of the journal that extend a snapshot and
+	 * sums their change of the move count into {@link #journalMoves}.
+	 *
+	 * @return the number of records applied.
+	 */
+	private int replayJournal(HanoiEngine engine, int snapshotGeneration) throws IOException {
+		byte[] journal;
+		try {
+			journal = Files.readAllBytes(journalFile);
+		} catch (NoSuchFileException e) {
+			return 0;
+		}
+		ByteBuffer in = ByteBuffer.wrap(journal);
+		int applied = 0;
+		journalMoves = 0;
+		for (int at = 0; at + RECORD_BYTES <= journal.length; at += RECORD_BYTES) {
+			if (in.getInt(at) != snapshotGeneration || in.getInt(at + 12) != checksum(journal, at, 12)) break;
+			if (!engine.move(in.get(at + 4), in.get(at + 5))) break;
+			lastJournalMillis = in.getInt(at + 8) & 0xFFFFFFFFL;
+			journalMoves += in.get(at + 6);
+			applied++;
+		}
+		return applied;
+	}
+
+	/**
+	 * Stores the current game as a new snapshot, dropping the journal.
+	 *
+	 * @param engine the board of the game.
+	 * @param session the progress of the game.
+	 */
+	public void save(HanoiEngine engine, GameSession session) {
+		long[] pegs = new long[engine.pegCount()];
+		engine.copyPegs(pegs);
+		Snapshot snapshot = new Snapshot(session.difficulty(), session.rules(), session.randomStart(), session.optimalMoves(), engine.totalDisk(), session.moveCount(), session.clock().elapsedNanos(), pegs);
+		journalRecords = 0;
+		queue.add(new Write(++generation, snapshot));
+	}
+
+	/**
+	 * Journals a committed move, compacting the journal into a new snapshot
+	 * every {@link #COMPACT_INTERVAL} moves.
+	 *
+	 * @param from the source peg.
+	 * @param to the destination peg.
+	 * @param engine the board after the move.
+	 * @param session the progress after the move.
+	 */
+	public void move(int from, int to, HanoiEngine engine, GameSession session) {
+		append(from, to, 1, engine, session);
+	}
+
+	/**
+	 * Journals an undone move: the reverse move is replayed on resume and
+	 * takes one off the move count instead of adding one.
+	 *
+	 * @param from the source peg of the reverse move.
+	 * @param to the destination peg of the reverse move.
+	 * @param engine the board after the undo.
+	 * @param session the progress after the undo.
+	 */
+	public void undo(int from, int to, HanoiEngine engine, GameSession session) {
+		append(from, to, -1, engine, session);
+	}
+
+	private void append(int from, int to, int count, HanoiEngine engine, GameSession session) {
+		if (++journalRecords >= COMPACT_INTERVAL) save(engine, session);
+		else queue.add(new Append(generation, from, to, count, session.clock().elapsedNanos()));
+	}
+
+	/**
+	 * Forgets the saved game, for instance once it is won.
+	 */
+	public void clear() {
+		journalRecords = 0;
+		queue.add(new Clear());
+	}
+
+	/**
+	 * Waits until every queued operation is on disk, for instance before exiting.
+	 *
+	 * @param timeoutMillis the longest time to wait.
+	 */
+	public void flush(long timeoutMillis) {
+		CountDownLatch done = new CountDownLatch(1);
+		queue.add(new Barrier(done));
+		try {
+			done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void runWriter() {
+		FileChannel journal = null;
+		ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+		while (true) {
+			try {
+				Op op = queue.take();
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_MILLIS);
+				boolean dirty = false;
+				while (op != null) {
+					switch (op) {
+						case Append a -> {
+							if (snapshotFile == null) break;
+							if (journal == null) journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+							record.clear();
+							record.putInt(a.generation()).put((byte) a.from()).put((byte) a.to()).put((byte) a.count()).put((byte) 0);
+							record.putInt((int) (a.elapsedNanos() / 1_000_000));
+							record.putInt(checksum(record.array(), 0, 12));
+							record.flip();
+							while (record.hasRemaining()) journal.write(record);
+							dirty = true;
+						}
+						case Write w -> {
+							if (snapshotFile == null) break;
+							writeSnapshot(w.generation(), w.snapshot());
+							if (journal == null) journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+							journal.truncate(0);
+							dirty = true;
+						}
+						case Clear _ -> {
+							if (snapshotFile == null) break;
+							if (journal != null) journal.close();
+							journal = null;
+							dirty = false;
+							Files.deleteIfExists(snapshotFile);
+							Files.deleteIfExists(journalFile);
+						}
+						case Barrier b -> {
+							if (dirty && journal != null) journal.force(false);
+							dirty = false;
+							b.done().countDown();
+						}
+					}
+					if (op instanceof Barrier) break;
+					long wait = deadline - System.nanoTime();
+					op = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+				}
+				if (dirty && journal != null) journal.force(false);
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				System.err.println("Could not save game: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Writes a snapshot next to the current one, flushes it and moves it in
+	 * place, so a crash leaves either the old or the new snapshot intact.
+	 */
+	private void writeSnapshot(int generation, Snapshot snapshot) throws IOException {
+		long[] pegs = snapshot.pegs();
+		ByteBuffer out = ByteBuffer.allocate(38 + 8 * pegs.length);
+		out.put(MAGIC).put((byte) VERSION).put((byte) pegs.length);
+		out.put((byte) snapshot.totalDisk()).put((byte) snapshot.difficulty()).put((byte) RuleVariant.ALL.indexOf(snapshot.rules()));
+		out.put((byte) (snapshot.randomStart() ? 1 : 0));
+		out.putInt(generation).putInt(snapshot.moveCount()).putLong(snapshot.elapsedNanos()).putLong(snapshot.optimalMoves());
+		for (long peg : pegs) out.putLong(peg);
+		out.putInt(checksum(out.array(), 0, out.position()));
+		out.flip();
+
+		Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining()) channel.write(out);
+			channel.force(true);
+		}
+		Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static int checksum(byte[] bytes, int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		return (int) crc.getValue();
+	}
+}
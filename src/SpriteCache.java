@@ -0,0 +1,97 @@
+import java.awt.BasicStroke;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * SpriteCache renders each distinct disk and tower shape once into an image
+ * compatible with the screen, so painting the board becomes a series of
+ * image blits. Java2D keeps such managed images in video memory once they
+ * are blitted repeatedly, which gives the speed of a VolatileImage without
+ * having to restore lost surfaces. Sprites depend on the board geometry, so
+ * the cache is emptied whenever the disk count or the screen size changes.
+ */
+public class SpriteCache {
+	public static final int DISK = 0; // Sprite kind of a complete disk.
+	public static final int TOWER = 1; // Sprite kind of an empty tower.
+	public static final int TOWER_CAP = 2; // Sprite kind of the oval closing a tower shaft.
+	public static final BasicStroke OUTLINE = new BasicStroke(1); // Stroke of the disk and tower outlines.
+	private final Map<Long, BufferedImage> sprites = new HashMap<>();
+	private int totalDisk = -1; // Disk count the cached sprites were drawn for.
+	private final Dimension screenSize = new Dimension(); // Screen size the cached sprites were drawn for.
+
+	/**
+	 * Empties the cache if the board geometry changed since the sprites were drawn.
+	 *
+	 * @param totalDisk the number of disks of the new game.
+	 * @param screenSize the size of the screen the board is laid out on.
+	 */
+	public void validate(int totalDisk, Dimension screenSize) {
+		if (totalDisk != this.totalDisk || !screenSize.equals(this.screenSize)) {
+			sprites.clear();
+			this.totalDisk = totalDisk;
+			this.screenSize.setSize(screenSize);
+		}
+	}
+
+	/**
+	 * Returns the sprite of a shape, rendering it on the first request.
+	 *
+	 * @param kind the kind of shape, one of {@link #DISK}, {@link #TOWER} or {@link #TOWER_CAP}.
+	 * @param rgb the color of the shape.
+	 * @param width the width of the shape.
+	 * @param height the height of the shape.
+	 * @param painter draws the shape with its top left corner at the origin.
+	 * @return the cached sprite.
+	 */
+	public BufferedImage sprite(int kind, int rgb, int width, int height, Consumer<Graphics2D> painter) {
+		long key = (long) kind << 56 | (long) (rgb & 0xFFFFFF) << 32 | (long) (width & 0xFFFF) << 16 | (height & 0xFFFF);
+		BufferedImage sprite = sprites.get(key);
+		if (sprite == null) {
+			sprite = createImage(width + 1, height + 1);
+			Graphics2D g2 = sprite.createGraphics();
+			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			painter.accept(g2);
+			g2.dispose();
+			sprites.put(key, sprite);
+		}
+		return sprite;
+	}
+
+	/**
+	 * Takes the sprites of another cache drawn for the same geometry, such as
+	 * one warmed by the {@link Preloader}. The other cache must no longer be
+	 * written to.
+	 *
+	 * @param other the cache to copy the sprites from.
+	 */
+	public void addAll(SpriteCache other) {
+		if (other.totalDisk != totalDisk || !other.screenSize.equals(screenSize)) return;
+		other.sprites.forEach(sprites::putIfAbsent);
+	}
+
+	/**
+	 * Returns the number of cached sprites.
+	 *
+	 * @return the cache size.
+	 */
+	public int size() {
+		return sprites.size();
+	}
+
+	private static BufferedImage createImage(int width, int height) {
+		if (!GraphicsEnvironment.isHeadless()) {
+			GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+					.getDefaultScreenDevice().getDefaultConfiguration();
+			return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		}
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+	}
+}
@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+/**
+ * StartPool deals random start positions of the three-peg puzzle, each
+ * rated by its exact optimal distance to the goal peg. Any assignment of
+ * disks to pegs stacks in exactly one legal way, so putting every disk on a
+ * random peg draws uniformly among all 3^n boards. The distance of
+ * {@link HanoiSolver#distance} is computed in the same pass from the
+ * largest disk down, so a rated position costs O(n) and no search.
+ * <p>
+ * That pass sets one bit of the distance per disk: the bit of a disk is 1
+ * exactly when the disk is off the peg it has to reach. Puzzles are sorted
+ * into {@link #BANDS} distance bands by the top three bits, each band
+ * covering an eighth of the distances: with 7 disks, band 3 holds the boards
+ * rated 48 to 63 moves. A puzzle of a chosen band is dealt directly, placing
+ * the three largest disks to match the band and the others at random, so it
+ * is uniform among the boards of its band and nothing is drawn twice. The
+ * bands themselves are not equally likely among all boards: a uniform board
+ * lands in the top band eight times as often as in band 0.
+ * <p>
+ * A low priority background thread keeps a bucket of puzzles per band and
+ * disk count of the difficulties, so taking one never waits; a disk count
+ * without buckets is simply dealt on the spot.
+ */
+public final class StartPool {
+	/**
+	 * A rated start position.
+	 *
+	 * @param totalDisk the number of disks.
+	 * @param pegs one bitmask of disks per peg.
+	 * @param distance the length of the optimal solution, read as an unsigned long.
+	 */
+	record Puzzle(int totalDisk, long[] pegs, long distance) {
+	}
+
+	static final int GOAL = 2; // Peg every puzzle is solved onto.
+	static final int BAND_BITS = 3; // Top distance bits selecting the band.
+	public static final int BANDS = 1 << BAND_BITS; // Bands 4 and up need the largest disk to move.
+	static final int BUCKET_SIZE = 16; // Puzzles kept ready per band and disk count.
+	private static final Map<Integer, List<BlockingQueue<Puzzle>>> BUCKETS = new ConcurrentHashMap<>(); // Keyed by disk count, one bucket per band.
+	private static Thread filler; // Refills the buckets, parked while they are full; guarded by the class.
+
+	private StartPool() {
+	}
+
+	/**
+	 * Returns the band of a distance.
+	 *
+	 * @param totalDisk the number of disks.
+	 * @param distance the distance, below 2^totalDisk.
+	 * @return the band, from 0 to {@link #BANDS} - 1.
+	 */
+	public static int band(int totalDisk, long distance) {
+		return (int) (totalDisk >= BAND_BITS ? distance >>> (totalDisk - BAND_BITS) : distance << (BAND_BITS - totalDisk));
+	}
+
+	/**
+	 * Draws a rated start position uniformly among the boards of a distance
+	 * band. With fewer than three disks some bands hold no board, and the
+	 * band is rounded down to one that does.
+	 *
+	 * @param totalDisk the number of disks, at least one.
+	 * @param band the band, from 0 to {@link #BANDS} - 1.
+	 * @param random the source of randomness.
+	 * @return the position and its distance to {@link #GOAL}.
+	 */
+	static Puzzle deal(int totalDisk, int band, RandomGenerator random) {
+		if (band < 0 || band >= BANDS) throw new IllegalArgumentException("No band " + band);
+		long[] pegs = new long[3];
+		long distance = 0;
+		int target = GOAL;
+		for (int disk = totalDisk - 1; disk >= 0; disk--) {
+			int bit = disk + BAND_BITS - totalDisk; // Bit of the band this disk decides, if any.
+			int peg;
+			if (bit < 0) peg = random.nextInt(3);
+			else if ((band >>> bit & 1) == 0) peg = target;
+			else peg = (target + 1 + random.nextInt(2)) % 3;
+			pegs[peg] |= 1L << disk;
+			if (peg != target) {
+				distance += 1L << disk;
+				target = 3 - peg - target;
+			}
+		}
+		return new Puzzle(totalDisk, pegs, distance);
+	}
+
+	/**
+	 * Starts keeping puzzles of every band ready for some disk counts.
+	 *
+	 * @param diskCounts the disk counts of the difficulties.
+	 */
+	public static synchronized void prepare(int... diskCounts) {
+		for (int totalDisk : diskCounts) {
+			BUCKETS.computeIfAbsent(totalDisk, _ -> {
+				List<BlockingQueue<Puzzle>> bands = new ArrayList<>(BANDS);
+				for (int band = 0; band < BANDS; band++) bands.add(new ArrayBlockingQueue<>(BUCKET_SIZE));
+				return bands;
+			});
+		}
+		if (filler == null) {
+			filler = new Thread(StartPool::fill, "start-pool");
+			filler.setDaemon(true);
+			filler.setPriority(Thread.MIN_PRIORITY);
+			filler.start();
+		}
+		LockSupport.unpark(filler);
+	}
+
+	/**
+	 * Takes a puzzle of a band, from its bucket if one is ready. Never blocks.
+	 *
+	 * @param totalDisk the number of disks, at least one.
+	 * @param band the band, from 0 to {@link #BANDS} - 1; see {@link #band}.
+	 * @return the puzzle.
+	 */
+	public static Puzzle take(int totalDisk, int band) {
+		List<BlockingQueue<Puzzle>> bands = BUCKETS.get(totalDisk);
+		Puzzle puzzle = bands == null ? null : bands.get(band).poll();
+		if (bands != null) wakeFiller();
+		return puzzle != null ? puzzle : deal(totalDisk, band, new SplittableRandom());
+	}
+
+	private static synchronized void wakeFiller() {
+		if (filler != null) LockSupport.unpark(filler);
+	}
+
+	/**
+	 * Tops up every bucket, then sleeps until a puzzle is taken or a bucket is added.
+	 */
+	private static void fill() {
+		SplittableRandom random = new SplittableRandom();
+		while (true) {
+			for (Map.Entry<Integer, List<BlockingQueue<Puzzle>>> bands : BUCKETS.entrySet()) {
+				for (int band = 0; band < BANDS; band++) {
+					BlockingQueue<Puzzle> bucket = bands.getValue().get(band);
+					while (bucket.remainingCapacity() > 0) bucket.offer(deal(bands.getKey(), band, random));
+				}
+			}
+			LockSupport.park();
+		}
+	}
+}
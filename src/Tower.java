@@ -1,22 +1,24 @@
-import java.awt.BasicStroke;
 import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import javax.swing.JPanel;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 
 /**
- * The Tower class represents a graphical tower component within a game or visualization.
- * This component handles the visual representation and interaction with disks.
+ * The Tower class represents a graphical tower drawn on the board canvas.
+ * It handles the visual representation of a peg and the disks stacked on it.
  */
-public class Tower extends JPanel {
+public class Tower {
+	public static final Color WOOD = new Color(139, 90, 43); // Color of the towers of the game.
 	private Disk topDisk = null;
 	private final Color bgColor;
 	private final int towerDepth;
 	private final int towerDiameter;
 	private final int towerHeight;
+	private final int towerIndex;
 	private final MyGraphics frame;
+	private final Rectangle bounds;
+	private BufferedImage sprite; // The pre-rendered empty tower, resolved on first paint.
+	private BufferedImage capSprite; // The pre-rendered oval closing the shaft.
 	private static final double SINE = 0.4375;
 
     /**
@@ -27,70 +29,82 @@ public class Tower extends JPanel {
      * @param towerHeight   the height of the tower.
      * @param towerX        the x-coordinate position of the tower.
      * @param towerY        the y-coordinate position of the tower.
-     * @param frame         the graphical frame context in which the tower resides.
+     * @param towerIndex    the engine index of the peg this tower displays.
+     * @param frame         the graphical frame context in which the tower resides, or null off screen.
      */
-    public Tower(Color bgColor, int towerDiameter, int towerHeight, int towerX, int towerY, MyGraphics frame) {
+    public Tower(Color bgColor, int towerDiameter, int towerHeight, int towerX, int towerY, int towerIndex, MyGraphics frame) {
         this.bgColor = bgColor;
 		this.towerDiameter = towerDiameter;
 		this.towerHeight = towerHeight;
+		this.towerIndex = towerIndex;
 		this.frame = frame;
 
         this.towerDepth = (int) ((double) towerDiameter * SINE);
 
-		setPreferredSize(new Dimension(towerDiameter, towerHeight + towerDepth));
-		setBounds(towerX - 1, towerY, towerDiameter + 2, towerHeight + towerDepth + 1);
-		setOpaque(false);
+		this.bounds = new Rectangle(towerX - 1, towerY, towerDiameter + 2, towerHeight + towerDepth + 1);
 	}
 
     /**
-     * Paints the tower component.
+     * Paints the tower at its position on the board canvas.
      *
-     * @param g the Graphics object used for painting.
+     * @param g the antialiased Graphics object of the board canvas.
+     * @param cache the cache holding the pre-rendered towers.
      */
-	@Override
-	protected void paintComponent(Graphics g) {
-		super.paintComponent(g);
-		Graphics2D g2 = (Graphics2D) g.create();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+	public void paint(Graphics2D g, SpriteCache cache) {
+		if (sprite == null) sprite = cache.sprite(SpriteCache.TOWER, bgColor.getRGB(), towerDiameter, towerHeight + towerDepth, this::render);
+		if (capSprite == null) capSprite = cache.sprite(SpriteCache.TOWER_CAP, bgColor.getRGB(), towerDiameter, towerDepth, this::renderCap);
 
+		// The shaft stops at the center of the top disk, where the cap closes it.
+		int shaftEnd = topDisk == null ? towerHeight : topDisk.getY() + topDisk.diskDepth() / 2 - bounds.y - towerDepth / 2;
+		int visible = Math.max(0, Math.min(sprite.getHeight(), towerDepth / 2 + shaftEnd));
+		g.drawImage(sprite, bounds.x, bounds.y, bounds.x + sprite.getWidth(), bounds.y + visible, 0, 0, sprite.getWidth(), visible, null);
+		g.drawImage(capSprite, bounds.x, bounds.y + shaftEnd, null);
+	}
+
+	/**
+	 * Draws the empty tower with its top left corner at the origin.
+	 *
+	 * @param g2 the antialiased Graphics object of the sprite.
+	 */
+	private void render(Graphics2D g2) {
 		g2.setColor(bgColor);
 		g2.fillOval(0, 0, towerDiameter, towerDepth);
+		g2.fillOval(0, towerHeight, towerDiameter, towerDepth);
+        g2.fillRect(0, towerDepth / 2, towerDiameter, towerHeight);
 
-        if (topDisk == null) {
-			g2.fillOval(0, towerHeight, towerDiameter, towerDepth);
-            g2.fillRect(0, towerDepth / 2, towerDiameter, towerHeight);
-        } else {
-			g2.fillOval(0, topDisk.getY() + topDisk.diskDepth() / 2 - getY() - towerDepth / 2, towerDiameter, towerDepth);
-            g2.fillRect(0, towerDepth / 2, towerDiameter, topDisk.getY() + topDisk.diskDepth() / 2 - getY() - towerDepth / 2);
-		}
-		
 		g2.setColor(Color.BLACK);
-		g2.setStroke(new BasicStroke(1));
+		g2.setStroke(SpriteCache.OUTLINE);
         g2.drawArc(1, 0, towerDiameter - 1, towerDepth, 0, -180);
+	}
 
-		g2.dispose();
+	/**
+	 * Draws the oval closing the shaft with its top left corner at the origin.
+	 *
+	 * @param g2 the antialiased Graphics object of the sprite.
+	 */
+	private void renderCap(Graphics2D g2) {
+		g2.setColor(bgColor);
+		g2.fillOval(0, 0, towerDiameter, towerDepth);
 	}
 
     /**
-     * Determines whether the given point (x, y) is inside the tower.
+     * Gets the area covered by the tower on the board canvas.
      *
-     * @param x the x-coordinate to check.
-     * @param y the y-coordinate to check.
-     * @return true if the point is inside the tower, false otherwise.
+     * @return a copy of the tower bounds.
      */
-	@Override
-    public boolean contains(int x, int y) {
-		return true;
+    public Rectangle getBounds() {
+		return new Rectangle(bounds);
 	}
 
     /**
-     * Sets the top disk on the tower and repaints the component.
+     * Sets the top disk on the tower and repaints the tower area, unless the
+     * tower is drawn off screen without a frame.
      *
      * @param topDisk the top disk to set on the tower.
      */
     public void topDisk(Disk topDisk) {
 		this.topDisk = topDisk;
-		repaint();
+		if (frame != null) frame.boardCanvas().repaint(bounds);
 	}
 
     /**
@@ -102,6 +116,15 @@ public class Tower extends JPanel {
 		return this.topDisk;
 	}
 
+    /**
+     * Gets the engine index of the peg this tower displays.
+     *
+     * @return the tower index.
+     */
+    public int towerIndex() {
+		return towerIndex;
+	}
+
     /**
      * Checks whether the tower is complete with the specified total number of disks.
      *
@@ -109,13 +132,7 @@ public class Tower extends JPanel {
      * @return true if the tower is complete, false otherwise.
      */
     public boolean isCompleteTower(int totalDisk) {
-		Disk disk = topDisk;
-		int counter = 0;
-        while (disk != null) {
-			disk = frame.inferiorDiskOf(disk);
-			counter++;
-		}
-		return counter == totalDisk;
+		return BoardLookups.isCompleteTower(frame.engine(), towerIndex, totalDisk);
 	}
 }
 
@@ -0,0 +1,44 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Varint reads and writes unsigned LEB128 variable-length integers: seven
+ * bits per byte, low bits first, the high bit marking that more bytes
+ * follow. Small values such as move deltas take a single byte.
+ */
+public final class Varint {
+	public static final int MAX_BYTES = 10; // Longest encoding of a 64-bit value.
+
+	private Varint() {
+	}
+
+	/**
+	 * Writes a value at the buffer position.
+	 *
+	 * @param buffer the buffer receiving the bytes.
+	 * @param value the value, read as unsigned.
+	 */
+	public static void write(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Reads a value at the buffer position.
+	 *
+	 * @param buffer the buffer holding the bytes.
+	 * @return the value, read as unsigned.
+	 * @throws IllegalArgumentException if the encoding is longer than {@link #MAX_BYTES}.
+	 */
+	public static long read(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; shift < 7 * MAX_BYTES; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) return value;
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+}
@@ -0,0 +1,100 @@
+import java.util.Arrays;
+
+/**
+ * Boards enumerates small boards and measures distances between them by
+ * breadth-first search, as a reference for the solvers. A board is encoded
+ * as a number in base pegCount whose digit d is the peg of disk d, which for
+ * four pegs is the encoding of {@link FourPegTablebase}.
+ */
+final class Boards {
+	private Boards() {
+	}
+
+	/**
+	 * Returns the number of boards of a disk and peg count.
+	 *
+	 * @param totalDisk the number of disks.
+	 * @param pegCount the number of pegs.
+	 * @return pegCount^totalDisk.
+	 */
+	static int count(int totalDisk, int pegCount) {
+		int count = 1;
+		for (int i = 0; i < totalDisk; i++) count *= pegCount;
+		return count;
+	}
+
+	/**
+	 * Encodes the board of an engine.
+	 *
+	 * @param engine the board.
+	 * @return the board number.
+	 */
+	static int encode(HanoiEngine engine) {
+		int position = 0;
+		for (int disk = engine.totalDisk() - 1; disk >= 0; disk--) position = position * engine.pegCount() + engine.pegOf(disk);
+		return position;
+	}
+
+	/**
+	 * Sets the board of an engine from its number.
+	 *
+	 * @param engine the engine, reset to the right disk count.
+	 * @param position the board number.
+	 */
+	static void decode(HanoiEngine engine, int position) {
+		long[] pegs = new long[engine.pegCount()];
+		for (int disk = 0; disk < engine.totalDisk(); disk++) {
+			pegs[position % engine.pegCount()] |= 1L << disk;
+			position /= engine.pegCount();
+		}
+		engine.setPegs(pegs);
+	}
+
+	/**
+	 * Measures the fewest moves from a board to every other board.
+	 *
+	 * @param start the board to search from; it is left unchanged.
+	 * @param rules the rules deciding which moves are legal.
+	 * @return the distances indexed by board number, -1 for unreachable boards.
+	 */
+	static int[] distancesFrom(HanoiEngine start, RuleVariant rules) {
+		int pegCount = start.pegCount();
+		HanoiEngine board = new HanoiEngine(pegCount);
+		board.reset(start.totalDisk(), 0);
+		int[] distance = new int[count(start.totalDisk(), pegCount)];
+		Arrays.fill(distance, -1);
+		int[] queue = new int[distance.length];
+		int head = 0, tail = 0;
+		queue[tail++] = encode(start);
+		distance[queue[0]] = 0;
+		while (head < tail) {
+			int position = queue[head++];
+			for (int from = 0; from < pegCount; from++) {
+				for (int to = 0; to < pegCount; to++) {
+					decode(board, position);
+					if (from == to || !rules.canMove(board, from, to)) continue;
+					board.move(from, to);
+					int next = encode(board);
+					if (distance[next] != -1) continue;
+					distance[next] = distance[position] + 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Returns an engine holding a complete tower.
+	 *
+	 * @param totalDisk the number of disks.
+	 * @param pegCount the number of pegs.
+	 * @param peg the peg of the tower.
+	 * @return the engine.
+	 */
+	static HanoiEngine tower(int totalDisk, int pegCount, int peg) {
+		HanoiEngine engine = new HanoiEngine(pegCount);
+		engine.reset(totalDisk, peg);
+		return engine;
+	}
+}
@@ -0,0 +1,86 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FourPegTablebaseTest {
+	@TempDir
+	Path directory;
+
+	@Test
+	void distancesMatchBreadthFirstSearch() throws IOException {
+		int totalDisk = 5;
+		int[] expected = Boards.distancesFrom(Boards.tower(totalDisk, 4, FourPegTablebase.GOAL_PEG), RuleVariant.CLASSIC);
+		try (FourPegTablebase table = FourPegTablebase.build(directory.resolve("tb"), totalDisk)) {
+			HanoiEngine board = Boards.tower(totalDisk, 4, 0);
+			for (int position = 0; position < expected.length; position++) {
+				Boards.decode(board, position);
+				assertEquals(position, FourPegTablebase.encode(board));
+				assertEquals(expected[position], table.distance(board));
+			}
+		}
+	}
+
+	@Test
+	void bestMovesReachTheGoalOptimally() throws IOException {
+		try (FourPegTablebase table = FourPegTablebase.build(directory.resolve("tb"), 6)) {
+			HanoiEngine board = Boards.tower(6, 4, 0);
+			int distance = table.distance(board);
+			assertEquals(new FrameStewartSolver(6, 4).moveCount(), distance);
+			for (int move = table.bestMove(board); move != Moves.NONE; move = table.bestMove(board)) {
+				assertTrue(board.move(Moves.from(move), Moves.to(move)));
+				assertEquals(--distance, table.distance(board));
+			}
+			assertEquals(0, distance);
+			assertTrue(board.isSolved(FourPegTablebase.GOAL_PEG));
+		}
+	}
+
+	@Test
+	void distanceTrackerFollowsTheTable() throws IOException {
+		try (FourPegTablebase table = FourPegTablebase.build(directory.resolve("tb"), 5)) {
+			DistanceTracker tracker = new DistanceTracker(FourPegTablebase.GOAL_PEG, table);
+			HanoiEngine board = Boards.tower(5, 4, 0);
+			tracker.reset(board, RuleVariant.CLASSIC);
+			assertEquals(13, tracker.distance());
+			assertTrue(board.move(0, 1));
+			tracker.moved(0);
+			assertTrue(tracker.isKnown());
+			assertEquals(table.distance(board), tracker.distance());
+			assertEquals(table.bestMove(board), tracker.bestMove());
+
+			tracker.reset(Boards.tower(4, 4, 0), RuleVariant.CLASSIC);
+			assertEquals(Moves.NONE, tracker.bestMove());
+		}
+	}
+
+	@Test
+	void reopensABuiltTable() throws IOException {
+		Path file = directory.resolve("tb");
+		FourPegTablebase.build(file, 4).close();
+		try (FourPegTablebase table = FourPegTablebase.open(file)) {
+			assertEquals(4, table.totalDisk());
+			assertEquals(9, table.distance(Boards.tower(4, 4, 0)));
+		}
+	}
+
+	@Test
+	void rejectsDiskCountsOutOfRangeBeforeCreatingTheFile() {
+		Path file = directory.resolve("tb");
+		assertThrows(IllegalArgumentException.class, () -> FourPegTablebase.build(file, FourPegTablebase.MAX_DISKS + 1));
+		assertThrows(IllegalArgumentException.class, () -> FourPegTablebase.build(file, 0));
+		assertFalse(Files.exists(file));
+	}
+
+	@Test
+	void rejectsOtherFiles() throws IOException {
+		Path file = Files.write(directory.resolve("other"), new byte[100]);
+		assertThrows(IOException.class, () -> FourPegTablebase.open(file));
+	}
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class HanoiSolverTest {
+	@Test
+	void streamsTheOptimalSolutionBetweenEveryPairOfPegs() {
+		for (int n = 0; n <= 10; n++) {
+			for (int from = 0; from < 3; from++) {
+				for (int to = 0; to < 3; to++) {
+					if (from == to) continue;
+					HanoiSolver solver = new HanoiSolver(n, from, to);
+					HanoiEngine board = Boards.tower(n, 3, from);
+					long moves = 0;
+					while (solver.hasNext()) {
+						int move = solver.next();
+						assertEquals(board.topDisk(Moves.from(move)), Moves.disk(move));
+						assertTrue(board.move(Moves.from(move), Moves.to(move)), "illegal move " + moves);
+						moves++;
+					}
+					assertEquals(Moves.NONE, solver.next());
+					assertEquals((1L << n) - 1, moves);
+					assertEquals(moves, solver.totalMoves());
+					assertTrue(board.isSolved(to));
+				}
+			}
+		}
+	}
+
+	@Test
+	void randomAccessMatchesTheStream() {
+		HanoiSolver solver = new HanoiSolver(9, 1, 0);
+		HanoiSolver stream = new HanoiSolver(9, 1, 0);
+		HanoiEngine board = Boards.tower(9, 3, 1);
+		long[] expected = new long[3], actual = new long[3];
+		for (long k = 1; k <= solver.totalMoves(); k++) {
+			int move = stream.next();
+			assertEquals(move, solver.move(k));
+			board.move(Moves.from(move), Moves.to(move));
+			board.copyPegs(expected);
+			solver.stateAfter(k, actual);
+			assertArrayEquals(expected, actual, "board after move " + k);
+		}
+	}
+
+	@Test
+	void seekResumesTheStream() {
+		HanoiSolver solver = new HanoiSolver(8, 0, 2);
+		solver.seek(100);
+		assertEquals(solver.move(101), solver.next());
+		solver.seek(solver.totalMoves());
+		assertFalse(solver.hasNext());
+		solver.reset();
+		assertEquals(solver.move(1), solver.next());
+	}
+
+	@Test
+	void coversSixtyFourDisks() {
+		HanoiSolver solver = new HanoiSolver(64, 0, 2);
+		assertEquals(-1L, solver.totalMoves());
+		assertEquals(63, Moves.disk(solver.move(1L << 63)));
+		long[] pegs = new long[3];
+		solver.stateAfter(-1L, pegs);
+		assertArrayEquals(new long[]{0, 0, -1L}, pegs);
+	}
+
+	@Test
+	void distanceIsExactFromEveryBoard() {
+		for (int n = 0; n <= 6; n++) {
+			for (int goal = 0; goal < 3; goal++) {
+				int[] expected = Boards.distancesFrom(Boards.tower(n, 3, goal), RuleVariant.CLASSIC);
+				HanoiEngine board = Boards.tower(n, 3, 0);
+				for (int position = 0; position < expected.length; position++) {
+					Boards.decode(board, position);
+					assertEquals(expected[position], HanoiSolver.distance(board, goal));
+				}
+			}
+		}
+	}
+
+	@Test
+	void rejectsInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new HanoiSolver(65, 0, 2));
+		assertThrows(IllegalArgumentException.class, () -> new HanoiSolver(3, 1, 1));
+		assertThrows(IllegalArgumentException.class, () -> new HanoiSolver(3, 0, 2).move(8));
+	}
+}
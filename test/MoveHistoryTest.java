@@ -0,0 +1,86 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class MoveHistoryTest {
+	private final HanoiEngine engine = Boards.tower(8, 3, 0);
+	private final int[] boards = new int[256]; // Board after each move of the optimal solution.
+
+	// Plays and records the first moves of the optimal 8-disk solution.
+	private MoveHistory play(int capacity, int count) {
+		MoveHistory history = new MoveHistory(3, capacity);
+		history.reset(engine);
+		HanoiSolver solver = new HanoiSolver(8, 0, 2);
+		boards[0] = Boards.encode(engine);
+		for (int k = 1; k <= count; k++) {
+			int move = solver.next();
+			assertTrue(engine.move(Moves.from(move), Moves.to(move)));
+			history.record(Moves.disk(move), Moves.from(move), Moves.to(move), engine);
+			boards[k] = Boards.encode(engine);
+		}
+		return history;
+	}
+
+	@Test
+	void undoAndRedoCrossACheckpoint() {
+		MoveHistory history = play(1 << 10, MoveHistory.CHECKPOINT_INTERVAL + 6);
+		for (int k = MoveHistory.CHECKPOINT_INTERVAL + 5; k >= MoveHistory.CHECKPOINT_INTERVAL - 6; k--) {
+			assertTrue(history.undo(engine) != Moves.NONE);
+			assertEquals(k, history.position());
+			assertEquals(boards[k], Boards.encode(engine), "undo to " + k);
+		}
+		while (history.canRedo()) {
+			history.redo(engine);
+			assertEquals(boards[(int) history.position()], Boards.encode(engine), "redo to " + history.position());
+		}
+		assertEquals(MoveHistory.CHECKPOINT_INTERVAL + 6, history.position());
+		assertEquals(Moves.NONE, history.redo(engine));
+	}
+
+	@Test
+	void seekGoesBothWaysAcrossBlocks() {
+		MoveHistory history = play(1 << 10, 200);
+		for (long k : new long[]{150, 10, 64, 63, 199, 128, 127, 0, 200, 65, 130}) {
+			history.seek(k, engine);
+			assertEquals(k, history.position());
+			assertEquals(boards[(int) k], Boards.encode(engine), "seek " + k);
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> history.seek(201, engine));
+	}
+
+	@Test
+	void newMoveDropsTheRedoneMoves() {
+		MoveHistory history = play(1 << 10, 100);
+		history.seek(40, engine);
+		assertTrue(history.canRedo());
+		int move = new HanoiSolver(8, 0, 2).move(41);
+		assertTrue(engine.move(Moves.from(move), Moves.to(move)));
+		history.record(Moves.disk(move), Moves.from(move), Moves.to(move), engine);
+		assertEquals(41, history.end());
+		assertFalse(history.canRedo());
+		history.seek(0, engine);
+		history.seek(41, engine);
+		assertEquals(boards[41], Boards.encode(engine));
+	}
+
+	@Test
+	void fullRingDropsTheOldestBlock() {
+		MoveHistory history = play(2 * MoveHistory.CHECKPOINT_INTERVAL, 255);
+		assertEquals(255, history.end());
+		assertEquals(2 * MoveHistory.CHECKPOINT_INTERVAL, history.first());
+		for (long k : new long[]{128, 200, 191, 255, 129}) {
+			history.seek(k, engine);
+			assertEquals(boards[(int) k], Boards.encode(engine), "seek " + k);
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> history.seek(history.first() - 1, engine));
+
+		history.seek(history.end(), engine);
+		while (history.canUndo()) history.undo(engine);
+		assertEquals(history.first(), history.position());
+		assertEquals(boards[(int) history.first()], Boards.encode(engine));
+		assertEquals(Moves.NONE, history.undo(engine));
+	}
+}
@@ -0,0 +1,120 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayArchiveTest {
+	@TempDir
+	Path directory;
+
+	// Records the optimal solution of a tower, 10 ms per move, and returns the board after each move.
+	private static int[] playSolution(ReplayRecorder recorder, int totalDisk, int pegCount, boolean end) {
+		HanoiEngine engine = Boards.tower(totalDisk, pegCount, 0);
+		recorder.beginGame(engine, 2);
+		HanoiSolver solver = new HanoiSolver(totalDisk, 0, pegCount - 1);
+		int[] boards = new int[(int) solver.totalMoves() + 1];
+		boards[0] = Boards.encode(engine);
+		for (int k = 1; solver.hasNext(); k++) {
+			int move = solver.next();
+			engine.move(Moves.from(move), Moves.to(move));
+			recorder.record(Moves.from(move), Moves.to(move), 10L * k, engine);
+			boards[k] = Boards.encode(engine);
+		}
+		if (end) recorder.endGame(10L * (boards.length - 1), true);
+		return boards;
+	}
+
+	@Test
+	void seeksAcrossCheckpoints() throws IOException {
+		Path file = directory.resolve("replays.hnr");
+		ReplayRecorder recorder = new ReplayRecorder(file);
+		int[] boards = playSolution(recorder, 9, 3, true);
+		recorder.flush(5000);
+
+		try (ReplayArchive archive = ReplayArchive.open(file)) {
+			assertEquals(1, archive.gameCount());
+			ReplayArchive.Replay replay = archive.replay(0);
+			assertEquals(511, replay.moveCount());
+			assertEquals(5110, replay.elapsedMillis());
+			assertTrue(replay.isSolved());
+			for (int k = 1; replay.hasNext(); k++) {
+				replay.next();
+				assertEquals(boards[k], Boards.encode(replay.board()), "move " + k);
+				assertEquals(10L * k, replay.clockMillis());
+			}
+			for (long k : new long[]{400, 255, 256, 257, 3, 511, 0, 300}) {
+				replay.seek(k);
+				assertEquals(k, replay.position());
+				assertEquals(boards[(int) k], Boards.encode(replay.board()), "seek " + k);
+				assertEquals(10L * k, replay.clockMillis());
+			}
+			assertThrows(IndexOutOfBoundsException.class, () -> replay.seek(512));
+		}
+	}
+
+	@Test
+	void recordsSixteenPegs() throws IOException {
+		Path file = directory.resolve("replays.hnr");
+		ReplayRecorder recorder = new ReplayRecorder(file);
+		HanoiEngine engine = Boards.tower(4, HanoiEngine.MAX_PEGS, 0);
+		recorder.beginGame(engine, 1);
+		assertTrue(engine.move(0, 15));
+		recorder.record(0, 15, 100, engine);
+		recorder.endGame(100, false);
+		recorder.flush(5000);
+
+		try (ReplayArchive archive = ReplayArchive.open(file)) {
+			ReplayArchive.Replay replay = archive.replay(0);
+			assertEquals(HanoiEngine.MAX_PEGS, replay.pegCount());
+			assertEquals(Moves.pack(0, 0, 15), replay.next());
+			assertFalse(replay.isSolved());
+		}
+	}
+
+	@Test
+	void tornBlockIsIgnoredThenCutOff() throws IOException {
+		Path file = directory.resolve("replays.hnr");
+		ReplayRecorder recorder = new ReplayRecorder(file);
+		int[] finished = playSolution(recorder, 5, 3, true);
+		playSolution(recorder, 9, 3, false);
+		recorder.flush(5000);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+
+		try (ReplayArchive archive = ReplayArchive.open(file)) {
+			assertEquals(2, archive.gameCount());
+			assertEquals(31, archive.replay(0).moveCount());
+			assertEquals(-1, archive.replay(1).elapsedMillis());
+		}
+
+		ReplayRecorder next = new ReplayRecorder(file);
+		int[] appended = playSolution(next, 4, 3, true);
+		next.flush(5000);
+		try (ReplayArchive archive = ReplayArchive.open(file)) {
+			assertEquals(3, archive.gameCount());
+			assertEquals(0, archive.replay(1).moveCount());
+			ReplayArchive.Replay first = archive.replay(0), last = archive.replay(2);
+			first.seek(31);
+			assertEquals(finished[31], Boards.encode(first.board()));
+			assertEquals(4, last.totalDisk());
+			last.seek(15);
+			assertEquals(appended[15], Boards.encode(last.board()));
+			assertTrue(last.isSolved());
+		}
+	}
+
+	@Test
+	void rejectsOtherFiles() throws IOException {
+		Path file = Files.write(directory.resolve("other"), new byte[]{1, 2, 3, 4, 5});
+		assertThrows(IOException.class, () -> ReplayArchive.open(file));
+	}
+}
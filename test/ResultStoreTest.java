@@ -0,0 +1,134 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResultStoreTest {
+	private static final ResultStore.Category CLASSIC = new ResultStore.Category(2, 5, 3, RuleVariant.CLASSIC);
+	private static final ResultStore.Category CYCLIC = new ResultStore.Category(2, 5, 3, RuleVariant.CYCLIC);
+
+	@TempDir
+	Path directory;
+
+	private static ResultStore.Result result(ResultStore.Category category, int moves, long millis) {
+		return new ResultStore.Result(category, moves, millis, 1_700_000_000_000L + moves * 1000L + millis);
+	}
+
+	@Test
+	void mergesBatchesIntoSortedIndexes() {
+		ResultStore store = new ResultStore(directory);
+		List<ResultStore.Result> added = new ArrayList<>();
+		SplittableRandom random = new SplittableRandom(3);
+		for (int batch = 0; batch < 3; batch++) {
+			for (int i = 0; i < 40; i++) {
+				ResultStore.Result r = result(CLASSIC, 31 + random.nextInt(40), 5_000 + random.nextInt(60_000));
+				store.add(r);
+				added.add(r);
+			}
+			store.flush(5000);
+		}
+
+		ResultStore reopened = new ResultStore(directory);
+		for (ResultStore.Order order : ResultStore.Order.values()) {
+			List<ResultStore.Result> expected = new ArrayList<>(added);
+			expected.sort(Comparator.comparingLong(r -> r.key(order)));
+			List<ResultStore.Result> top = reopened.top(CLASSIC, order, added.size());
+			assertEquals(added.size(), top.size());
+			for (int i = 0; i < top.size(); i++) assertEquals(expected.get(i).key(order), top.get(i).key(order), order + " entry " + i);
+			assertEquals(expected.get(0).key(order), reopened.best(CLASSIC, order).key(order));
+		}
+	}
+
+	@Test
+	void ranksPendingAndMergedResultsAlike() {
+		ResultStore store = new ResultStore(directory);
+		for (int moves = 31; moves < 41; moves++) store.add(result(CLASSIC, moves, 10_000));
+		ResultStore.Result probe = result(CLASSIC, 35, 10_000);
+		store.add(probe);
+		ResultStore.Standing pending = store.standing(probe, ResultStore.Order.MOVES);
+		store.flush(5000);
+		ResultStore.Standing merged = new ResultStore(directory).standing(probe, ResultStore.Order.MOVES);
+
+		assertEquals(pending, merged);
+		assertEquals(5, merged.rank());
+		assertEquals(11, merged.count());
+		assertEquals(50, merged.percentile(), 1e-9);
+		assertEquals(100.0 * 5 / 11, merged.top(), 1e-9);
+	}
+
+	@Test
+	void onlyResultIsRankedFirst() {
+		ResultStore store = new ResultStore(directory);
+		ResultStore.Result only = result(CLASSIC, 40, 20_000);
+		store.add(only);
+		store.flush(5000);
+		ResultStore.Standing standing = store.standing(only, ResultStore.Order.MOVES);
+		assertEquals(1, standing.rank());
+		assertEquals(1, standing.count());
+		assertEquals(100, standing.top(), 1e-9);
+	}
+
+	@Test
+	void newBestIsInTheTopShare() {
+		ResultStore store = new ResultStore(directory);
+		for (int moves = 32; moves < 41; moves++) store.add(result(CLASSIC, moves, 10_000));
+		ResultStore.Result best = result(CLASSIC, 31, 10_000);
+		store.add(best);
+		store.flush(5000);
+		ResultStore.Standing standing = store.standing(best, ResultStore.Order.MOVES);
+		assertEquals(1, standing.rank());
+		assertEquals(10, standing.count());
+		assertEquals(100, standing.percentile(), 1e-9);
+		assertEquals(10, standing.top(), 1e-9);
+	}
+
+	@Test
+	void keepsCategoriesApart() throws IOException {
+		ResultStore store = new ResultStore(directory);
+		store.add(result(CLASSIC, 31, 9_000));
+		store.add(result(CYCLIC, 200, 90_000));
+		store.flush(5000);
+
+		assertEquals(1, store.standing(result(CLASSIC, 40, 9_000), ResultStore.Order.MOVES).count());
+		assertEquals(31, store.best(CLASSIC, ResultStore.Order.MOVES).moves());
+		assertEquals(200, store.best(CYCLIC, ResultStore.Order.MOVES).moves());
+		assertNull(store.best(new ResultStore.Category(1, 3, 3, RuleVariant.CLASSIC), ResultStore.Order.TIME));
+		try (Stream<Path> files = Files.list(directory)) {
+			assertTrue(files.map(f -> f.getFileName().toString()).allMatch(name -> name.startsWith("results-classic-") || name.startsWith("results-cyclic-")));
+		}
+	}
+
+	@Test
+	void failedMergeDoesNotHoldUpFlush() throws IOException {
+		ResultStore store = new ResultStore(directory);
+		// A directory in the way of the temporary index makes every merge fail.
+		Files.createDirectory(directory.resolve("results-classic-2-5-3-moves.idx.tmp"));
+		store.add(result(CLASSIC, 31, 9_000));
+		store.add(result(CYCLIC, 200, 90_000));
+		long start = System.nanoTime();
+		store.flush(10_000);
+		assertTrue(System.nanoTime() - start < 5_000_000_000L, "flush waited for the failed merge");
+		assertEquals(200, store.best(CYCLIC, ResultStore.Order.MOVES).moves());
+		assertNull(store.best(CLASSIC, ResultStore.Order.MOVES));
+	}
+
+	@Test
+	void keepsResultsInMemoryWithoutADirectory() {
+		ResultStore store = new ResultStore(null);
+		store.add(result(CLASSIC, 40, 20_000));
+		store.add(result(CLASSIC, 31, 30_000));
+		store.flush(5000);
+		assertEquals(31, store.best(CLASSIC, ResultStore.Order.MOVES).moves());
+		assertEquals(40, store.best(CLASSIC, ResultStore.Order.TIME).moves());
+	}
+}
@@ -0,0 +1,78 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RuleVariantTest {
+	@Test
+	void solversAreLegalAndOptimal() {
+		for (RuleVariant rules : RuleVariant.ALL) {
+			for (int n = 0; n <= 6; n++) {
+				for (int from = 0; from < 3; from++) {
+					int[] optimal = Boards.distancesFrom(Boards.tower(n, 3, from), rules);
+					for (int to = 0; to < 3; to++) {
+						if (from == to) continue;
+						String name = rules.name() + " " + n + " disks " + from + "->" + to;
+						RuleVariant.Solver solver = rules.solver(n, from, to);
+						HanoiEngine board = Boards.tower(n, 3, from);
+						long moves = 0;
+						while (solver.hasNext()) {
+							int move = solver.next();
+							assertEquals(board.topDisk(Moves.from(move)), Moves.disk(move), name);
+							assertTrue(rules.canMove(board, Moves.from(move), Moves.to(move)), name + " move " + moves);
+							board.move(Moves.from(move), Moves.to(move));
+							moves++;
+						}
+						assertEquals(Moves.NONE, solver.next(), name);
+						assertTrue(board.isSolved(to), name);
+						assertEquals(solver.totalMoves(), moves, name);
+						assertEquals(optimal[Boards.encode(Boards.tower(n, 3, to))], moves, name);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void planSolverCountsSaturate() {
+		assertEquals(-1L, RuleVariant.ADJACENT.solver(64, 0, 2).totalMoves());
+		assertEquals(-1L, RuleVariant.CYCLIC.solver(64, 0, 2).totalMoves());
+		assertEquals(1853020188851840L, RuleVariant.ADJACENT.solver(32, 0, 2).totalMoves());
+	}
+
+	@Test
+	void variantsForbidTheirMoves() {
+		HanoiEngine board = Boards.tower(3, 3, 0);
+		assertTrue(RuleVariant.CYCLIC.canMove(board, 0, 1));
+		assertFalse(RuleVariant.CYCLIC.canMove(board, 0, 2));
+		assertFalse(RuleVariant.ADJACENT.canMove(board, 0, 2));
+		assertTrue(RuleVariant.ADJACENT.canMove(board, 0, 1));
+
+		board.move(0, 2);
+		board.move(0, 1);
+		assertTrue(RuleVariant.BICOLOR.canMove(board, 2, 1), "disk 0 onto disk 1");
+		board.move(2, 1);
+		board.move(0, 2);
+		assertTrue(board.canMove(1, 2));
+		assertFalse(RuleVariant.BICOLOR.canMove(board, 1, 2), "disk 0 onto disk 2");
+	}
+
+	@Test
+	void gameIsWonWithTheTowerOnTheLastPeg() {
+		for (RuleVariant rules : RuleVariant.ALL) {
+			assertFalse(rules.isSolved(Boards.tower(4, 3, 0)));
+			assertFalse(rules.isSolved(Boards.tower(4, 3, 1)));
+			assertTrue(rules.isSolved(Boards.tower(4, 3, 2)));
+		}
+	}
+
+	@Test
+	void variantsAreFoundByName() {
+		assertEquals(List.of(RuleVariant.CLASSIC, RuleVariant.CYCLIC, RuleVariant.ADJACENT, RuleVariant.BICOLOR), RuleVariant.ALL);
+		for (RuleVariant rules : RuleVariant.ALL) assertEquals(rules, RuleVariant.named(rules.name().toUpperCase()));
+		assertThrows(IllegalArgumentException.class, () -> RuleVariant.named("reverse"));
+	}
+}
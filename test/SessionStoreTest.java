@@ -0,0 +1,147 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SessionStoreTest {
+	@TempDir
+	Path directory;
+	private SessionStore store;
+	private HanoiEngine engine;
+	private GameSession session;
+
+	@BeforeEach
+	void startGame() {
+		store = newStore();
+		engine = Boards.tower(5, 3, 0);
+		session = new GameSession(2, RuleVariant.CLASSIC, false);
+		session.optimalMoves(31);
+		store.save(engine, session);
+	}
+
+	private SessionStore newStore() {
+		return new SessionStore(directory.resolve("session.bin"), directory.resolve("session.journal"));
+	}
+
+	private void play(int from, int to) {
+		assertTrue(engine.move(from, to));
+		session.moveCommitted();
+		store.move(from, to, engine, session);
+	}
+
+	private void undo(int from, int to) {
+		assertTrue(engine.move(to, from));
+		session.rewind(session.moveCount() - 1);
+		store.undo(to, from, engine, session);
+	}
+
+	private SessionStore.Snapshot resume() {
+		store.flush(5000);
+		return newStore().load(3);
+	}
+
+	private void assertResumes(SessionStore.Snapshot saved) {
+		assertNotNull(saved);
+		assertEquals(session.moveCount(), saved.moveCount());
+		long[] pegs = new long[3];
+		engine.copyPegs(pegs);
+		assertArrayEquals(pegs, saved.pegs());
+	}
+
+	@Test
+	void snapshotKeepsTheGame() {
+		session = new GameSession(3, RuleVariant.CYCLIC, true);
+		session.restore(12, 3_000_000_000L);
+		session.optimalMoves(77);
+		store.save(engine, session);
+		SessionStore.Snapshot saved = resume();
+		assertResumes(saved);
+		assertEquals(3, saved.difficulty());
+		assertEquals(RuleVariant.CYCLIC, saved.rules());
+		assertTrue(saved.randomStart());
+		assertEquals(77, saved.optimalMoves());
+		assertEquals(5, saved.totalDisk());
+		assertEquals(3_000_000_000L, saved.elapsedNanos());
+	}
+
+	@Test
+	void journalReplaysTheMovesAfterTheSnapshot() {
+		play(0, 2);
+		play(0, 1);
+		play(2, 1);
+		assertResumes(resume());
+	}
+
+	@Test
+	void undoneMovesDoNotCountOnResume() {
+		play(0, 2);
+		undo(0, 2);
+		SessionStore.Snapshot saved = resume();
+		assertResumes(saved);
+		assertEquals(0, saved.moveCount());
+	}
+
+	@Test
+	void redoneMovesCountAgain() {
+		play(0, 2);
+		play(0, 1);
+		undo(0, 1);
+		undo(0, 2);
+		play(0, 2);
+		play(0, 1);
+		SessionStore.Snapshot saved = resume();
+		assertResumes(saved);
+		assertEquals(2, saved.moveCount());
+	}
+
+	@Test
+	void compactionKeepsTheMoveCount() {
+		// The smallest disk goes round the pegs, with an undo and redo of every second move.
+		for (int i = 0, peg = 0; i < SessionStore.COMPACT_INTERVAL + 10; i++, peg = (peg + 1) % 3) {
+			play(peg, (peg + 1) % 3);
+			if (i % 2 == 0) continue;
+			undo(peg, (peg + 1) % 3);
+			play(peg, (peg + 1) % 3);
+		}
+		assertResumes(resume());
+	}
+
+	@Test
+	void tornRecordIsIgnored() throws IOException {
+		play(0, 2);
+		store.flush(5000);
+		Files.write(directory.resolve("session.journal"), new byte[]{1, 2, 3, 4, 5, 6, 7}, StandardOpenOption.APPEND);
+		assertResumes(resume());
+	}
+
+	@Test
+	void writerSurvivesAClearAfterAMove() {
+		play(0, 2);
+		store.clear();
+		store.flush(5000);
+		store.save(engine, session);
+		play(0, 1);
+		assertResumes(resume());
+	}
+
+	@Test
+	void otherPegCountsAndClearedGamesAreNotResumed() {
+		play(0, 2);
+		store.flush(5000);
+		assertNull(newStore().load(4));
+		store.clear();
+		store.flush(5000);
+		assertNull(newStore().load(3));
+		assertFalse(Files.exists(directory.resolve("session.bin")));
+	}
+}